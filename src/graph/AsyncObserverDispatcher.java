@@ -0,0 +1,459 @@
+package graph;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <P>Delivers the progress of the graph algorithms to an observer on a
+ * thread of its own, so that an algorithm never waits for a slow 
+ * observer (one that draws, or sleeps to animate) unless it asks to.</P>
+ * 
+ * <P>The algorithm's thread writes each event into an ObserverEventRing
+ * as a primitive record, and the dispatch thread takes them out in
+ * batches of up to BATCH_SIZE, turns vertex ids back into vertices, and
+ * calls the observer.  What happens to a vertex event when the ring is
+ * full is chosen by the Backpressure; events that begin or end an 
+ * algorithm always wait for room.  The only event that carries an 
+ * object, the path given to notifyDijkstraIsOver, travels beside the
+ * ring in a queue of its own.</P>
+ * 
+ * <P>When there is nothing to deliver, the dispatch thread parks 
+ * until an event is published.  It holds the graph and the observer
+ * only weakly, so a graph that is dropped without being closed can 
+ * still be collected, and the thread then stops.</P>
+ * 
+ * <P>Every method other than close and the counters must be called 
+ * from the same thread, the one running the algorithms, and the graph
+ * must not be changed while events for it are being delivered.</P>
+ */
+class AsyncObserverDispatcher<V> implements GraphAlgorithmObserver<V>, SearchListener {
+
+	static final int BATCH_SIZE = 256;
+
+	/* Event types.  For FRONTIER_VISIT the cost holds 1 for the 
+	 * frontier growing from the start and 0 for the other one.
+	 */
+	private static final int NONE = -1;
+	private static final int BFS_BEGUN = 0;
+	private static final int DFS_BEGUN = 1;
+	private static final int DIJKSTRA_BEGUN = 2;
+	private static final int VISIT = 3;
+	private static final int FINISHED = 4;
+	private static final int FRONTIER_VISIT = 5;
+	private static final int FORWARD_FINISHED = 6;
+	private static final int BACKWARD_FINISHED = 7;
+	private static final int SEARCH_OVER = 8;
+	private static final int DIJKSTRA_OVER = 9;
+
+	/* Graphs with a dispatch thread that have been collected, and the
+	 * thread that stops their dispatch threads (see Delivery). */
+	private static final ReferenceQueue<Object> collectedGraphs = new ReferenceQueue<Object>();
+	private static Thread reaper;
+
+	private final IndexedGraph<V> graph;
+	private final Backpressure backpressure;
+	private final ObserverEventRing ring;
+	private final Delivery<V> delivery;
+
+	/* Events published by the algorithm's thread. */
+	private long published;
+
+	private volatile long dropped;
+	private volatile long coalesced;
+
+	/* Events held back under COALESCE: the type (or NONE) and cost of
+	 * the latest event for each vertex, and the held vertices in the
+	 * order they were first held.  There is at most one held event for
+	 * each vertex of the graph.
+	 */
+	private int[] heldTypes;
+	private int[] heldCosts;
+	private int[] heldIds;
+	private int heldFrom;
+	private int heldTo;
+
+	/** Creates a dispatcher and starts its thread.
+	 * 
+	 * @param graph the graph whose vertex ids will be reported
+	 * @param target observer that is called on the dispatch thread
+	 * @param backpressure what to do with a vertex event when the ring 
+	 * is full
+	 * @param capacity number of events the ring can hold
+	 */
+	AsyncObserverDispatcher(IndexedGraph<V> graph, GraphAlgorithmObserver<V> target,
+			Backpressure backpressure, int capacity) {
+		this.graph = graph;
+		this.backpressure = backpressure;
+		ring = new ObserverEventRing(capacity);
+		startReaper();
+		delivery = new Delivery<V>(graph, target, ring);
+		delivery.thread.start();
+	}
+
+	private static synchronized void startReaper() {
+		if (reaper != null) {
+			return;
+		}
+		reaper = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (true) {
+					try {
+						((GraphReference<?>) collectedGraphs.remove()).delivery.stop();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+		}, "graph-observer-reaper");
+		reaper.setDaemon(true);
+		reaper.start();
+	}
+
+	/** Returns the number of vertex events discarded under 
+	 * Backpressure.DROP.
+	 */
+	long getDroppedCount() {
+		return dropped;
+	}
+
+	/** Returns the number of vertex events that were replaced by a
+	 * later event for the same vertex under Backpressure.COALESCE.
+	 */
+	long getCoalescedCount() {
+		return coalesced;
+	}
+
+	/** Waits until every event published so far has been delivered.
+	 * 
+	 * @throws InterruptedException
+	 * @throws RuntimeException the first exception an observer threw
+	 * since the last one was rethrown
+	 */
+	void awaitDelivery() throws InterruptedException {
+		flushHeld(true);
+		while (delivery.delivered < published) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			wake();
+			LockSupport.parkNanos(this, 100000);
+		}
+		rethrowFailure();
+	}
+
+	/** Stops the dispatch thread once it has delivered the events 
+	 * already published.  Nothing may be published afterwards.
+	 * 
+	 * @throws RuntimeException the first exception an observer has 
+	 * thrown so far, if it has not been rethrown already
+	 */
+	void close() {
+		flushHeld(true);
+		delivery.stop();
+		rethrowFailure();
+	}
+
+	private void rethrowFailure() {
+		RuntimeException e = delivery.failure;
+		if (e != null) {
+			delivery.failure = null;
+			throw e;
+		}
+	}
+
+	@Override
+	public void notifyDFSHasBegun() {
+		publishControl(DFS_BEGUN);
+	}
+
+	@Override
+	public void notifyBFSHasBegun() {
+		publishControl(BFS_BEGUN);
+	}
+
+	@Override
+	public void notifyVisit(V vertexBeingVisited) {
+		vertexVisited(graph.getVertexId(vertexBeingVisited));
+	}
+
+	@Override
+	public void notifySearchIsOver() {
+		publishControl(SEARCH_OVER);
+	}
+
+	@Override
+	public void notifyDijkstraHasBegun() {
+		publishControl(DIJKSTRA_BEGUN);
+	}
+
+	@Override
+	public void notifyDijkstraVertexFinished(V vertexAddedToFinishedSet, Integer costOfPath) {
+		vertexFinished(graph.getVertexId(vertexAddedToFinishedSet), costOfPath);
+	}
+
+	@Override
+	public void notifyDijkstraIsOver(List<V> path) {
+		delivery.paths.add(path);
+		publishControl(DIJKSTRA_OVER);
+	}
+
+	@Override
+	public void notifyBidirectionalVisit(V vertexBeingVisited, boolean fromStart) {
+		frontierVisited(graph.getVertexId(vertexBeingVisited), fromStart);
+	}
+
+	@Override
+	public void notifyBidirectionalVertexFinished(V vertexAddedToFinishedSet, 
+			Integer costOfPath, boolean fromStart) {
+		frontierFinished(graph.getVertexId(vertexAddedToFinishedSet), costOfPath, fromStart);
+	}
+
+	@Override
+	public void vertexVisited(int id) {
+		publishVertex(VISIT, id, 0);
+	}
+
+	@Override
+	public void vertexFinished(int id, int cost) {
+		publishVertex(FINISHED, id, cost);
+	}
+
+	@Override
+	public void frontierVisited(int id, boolean forward) {
+		publishVertex(FRONTIER_VISIT, id, forward ? 1 : 0);
+	}
+
+	@Override
+	public void frontierFinished(int id, int cost, boolean forward) {
+		publishVertex(forward ? FORWARD_FINISHED : BACKWARD_FINISHED, id, cost);
+	}
+
+	private void publishControl(int type) {
+		flushHeld(true);
+		put(type, -1, 0);
+	}
+
+	private void publishVertex(int type, int id, int cost) {
+		if (heldFrom < heldTo) {
+			flushHeld(false);
+		}
+		if (heldFrom == heldTo && offer(type, id, cost)) {
+			return;
+		}
+		switch (backpressure) {
+		case BLOCK:
+			put(type, id, cost);
+			break;
+		case DROP:
+			dropped++;
+			break;
+		default:
+			hold(type, id, cost);
+			break;
+		}
+	}
+
+	private boolean offer(int type, int id, int cost) {
+		if (!ring.offer(type, id, cost)) {
+			return false;
+		}
+		published++;
+		wake();
+		return true;
+	}
+
+	/* Publishes an event, waiting for room if need be. */
+	private void put(int type, int id, int cost) {
+		while (!offer(type, id, cost)) {
+			wake();
+			Thread.yield();
+		}
+	}
+
+	private void wake() {
+		if (delivery.sleeping) {
+			LockSupport.unpark(delivery.thread);
+		}
+	}
+
+	private void hold(int type, int id, int cost) {
+		if (heldTypes == null || id >= heldTypes.length) {
+			int size = Math.max(id + 1, graph.getVertexCount());
+			int oldSize = heldTypes == null ? 0 : heldTypes.length;
+			heldTypes = heldTypes == null ? new int[size] : Arrays.copyOf(heldTypes, size);
+			heldCosts = heldCosts == null ? new int[size] : Arrays.copyOf(heldCosts, size);
+			heldIds = heldIds == null ? new int[size] : Arrays.copyOf(heldIds, size);
+			Arrays.fill(heldTypes, oldSize, size, NONE);
+		}
+		if (heldTypes[id] == NONE) {
+			heldIds[heldTo++] = id;
+		} else {
+			coalesced++;
+		}
+		heldTypes[id] = type;
+		heldCosts[id] = cost;
+	}
+
+	/* Publishes the held events in the order they were first held,
+	 * stopping when the ring is full unless "block" is true.
+	 */
+	private void flushHeld(boolean block) {
+		while (heldFrom < heldTo) {
+			int id = heldIds[heldFrom];
+			if (!offer(heldTypes[id], id, heldCosts[id])) {
+				if (!block) {
+					return;
+				}
+				wake();
+				Thread.yield();
+				continue;
+			}
+			heldTypes[id] = NONE;
+			heldFrom++;
+		}
+		heldFrom = 0;
+		heldTo = 0;
+	}
+
+	/* The dispatch thread and what it uses.  It reaches the graph and
+	 * the observer only through weak references, so that it does not
+	 * keep them (or the dispatcher, which the graph holds) alive; once
+	 * the graph has been collected, the reaper stops the thread.
+	 */
+	private static class Delivery<V> implements Runnable {
+		final ObserverEventRing ring;
+		final ConcurrentLinkedQueue<List<V>> paths = new ConcurrentLinkedQueue<List<V>>();
+		final GraphReference<V> graph;
+		final WeakReference<GraphAlgorithmObserver<V>> target;
+		final Thread thread;
+
+		/* Set by the dispatch thread just before it parks, and checked
+		 * by the publisher after each event it publishes.  The thread
+		 * looks at the ring once more after setting it, so one of the
+		 * two always sees the other. */
+		volatile boolean sleeping;
+		volatile boolean closed;
+
+		/* Events delivered; written by the dispatch thread only. */
+		volatile long delivered;
+
+		/* The first exception an observer threw, not yet rethrown. */
+		volatile RuntimeException failure;
+
+		Delivery(IndexedGraph<V> graph, GraphAlgorithmObserver<V> target, ObserverEventRing ring) {
+			this.ring = ring;
+			this.graph = new GraphReference<V>(graph, this);
+			this.target = new WeakReference<GraphAlgorithmObserver<V>>(target);
+			thread = new Thread(this, "graph-observer-dispatch");
+			thread.setDaemon(true);
+		}
+
+		/* Lets the thread finish the events already published, and 
+		 * stop. */
+		void stop() {
+			closed = true;
+			LockSupport.unpark(thread);
+		}
+
+		@Override
+		public void run() {
+			int[] types = new int[BATCH_SIZE];
+			int[] ids = new int[BATCH_SIZE];
+			int[] costs = new int[BATCH_SIZE];
+			while (true) {
+				int count = ring.drainTo(types, ids, costs, BATCH_SIZE);
+				if (count == 0) {
+					if (closed && ring.isEmpty()) {
+						return;
+					}
+					sleeping = true;
+					if (ring.isEmpty() && !closed) {
+						LockSupport.park(this);
+					}
+					sleeping = false;
+					continue;
+				}
+				if (!deliver(types, ids, costs, count)) {
+					return;
+				}
+				delivered += count;
+			}
+		}
+
+		/* Delivers a batch of events, unless the graph or the observer
+		 * has been collected, when it returns false.  The strong 
+		 * references taken here are dropped before the thread parks.
+		 */
+		private boolean deliver(int[] types, int[] ids, int[] costs, int count) {
+			IndexedGraph<V> g = graph.get();
+			GraphAlgorithmObserver<V> t = target.get();
+			if (g == null || t == null) {
+				return false;
+			}
+			for (int i = 0; i < count; i++) {
+				try {
+					deliver(g, t, types[i], ids[i], costs[i]);
+				} catch (RuntimeException e) {
+					/* one failing observer must not stop the rest of the 
+					 * events, or a blocked algorithm would never resume;
+					 * the first failure is kept for awaitDelivery */
+					if (failure == null) {
+						failure = e;
+					}
+				}
+			}
+			return true;
+		}
+
+		private void deliver(IndexedGraph<V> graph, GraphAlgorithmObserver<V> target, int type, int id, int cost) {
+			switch (type) {
+			case BFS_BEGUN:
+				target.notifyBFSHasBegun();
+				break;
+			case DFS_BEGUN:
+				target.notifyDFSHasBegun();
+				break;
+			case DIJKSTRA_BEGUN:
+				target.notifyDijkstraHasBegun();
+				break;
+			case VISIT:
+				target.notifyVisit(graph.getVertex(id));
+				break;
+			case FINISHED:
+				target.notifyDijkstraVertexFinished(graph.getVertex(id), cost);
+				break;
+			case FRONTIER_VISIT:
+				target.notifyBidirectionalVisit(graph.getVertex(id), cost == 1);
+				break;
+			case FORWARD_FINISHED:
+				target.notifyBidirectionalVertexFinished(graph.getVertex(id), cost, true);
+				break;
+			case BACKWARD_FINISHED:
+				target.notifyBidirectionalVertexFinished(graph.getVertex(id), cost, false);
+				break;
+			case SEARCH_OVER:
+				target.notifySearchIsOver();
+				break;
+			default:
+				target.notifyDijkstraIsOver(paths.poll());
+				break;
+			}
+		}
+	}
+
+	/* A weak reference to a graph, queued for the reaper once the graph
+	 * has been collected. */
+	private static class GraphReference<V> extends WeakReference<IndexedGraph<V>> {
+		final Delivery<V> delivery;
+
+		GraphReference(IndexedGraph<V> graph, Delivery<V> delivery) {
+			super(graph, collectedGraphs);
+			this.delivery = delivery;
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package graph;
+
+/**
+ * Selects what an asynchronous observer dispatcher does with a vertex
+ * event when its buffer is full, because the observers have fallen 
+ * behind the algorithm.  The events that begin and end an algorithm
+ * are never dropped or merged; they always wait for room.
+ */
+public enum Backpressure {
+
+	/** Wait until the observers have made room.  Every event is 
+	 * delivered in order, but the algorithm runs no faster than its
+	 * slowest observer once the buffer has filled.
+	 */
+	BLOCK,
+
+	/** Discard the event and carry on.  The observers see a gap. */
+	DROP,
+
+	/** Hold the event aside, and deliver the held events as soon as
+	 * there is room.  At most one event is held for each vertex: a 
+	 * later event for a vertex that already has one held replaces it,
+	 * so the observers see only the latest news of that vertex (for a
+	 * bidirectional search, whichever search reached it last).  Events
+	 * that were held are no longer in their original order.
+	 */
+	COALESCE
+}
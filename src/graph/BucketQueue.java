@@ -0,0 +1,96 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * <P>A monotone priority queue of vertex ids for graphs whose edge
+ * weights are small integers (Dial's algorithm).</P>
+ * 
+ * <P>While Dijkstra's algorithm runs, every queued key lies between
+ * the key last removed and that key plus the maximum edge weight, so
+ * a circular array of maxWeight + 1 buckets is enough to hold them.
+ * Each bucket is a doubly-linked list threaded through int arrays,
+ * which makes insertion, decrease-key and removal O(1) without any
+ * comparisons between keys.</P>
+ */
+class BucketQueue extends VertexQueue {
+
+	private int[] bucketHead;
+	private int[] next;
+	private int[] previous;
+	private int[] keys;
+	private boolean[] queued;
+	private int size;
+	private int current;
+
+	/** Creates an empty queue able to hold ids from 0 to capacity - 1.
+	 * 
+	 * @param capacity
+	 * @param maxWeight largest weight of any edge in the graph
+	 */
+	BucketQueue(int capacity, int maxWeight) {
+		bucketHead = new int[maxWeight + 1];
+		Arrays.fill(bucketHead, -1);
+		next = new int[capacity];
+		previous = new int[capacity];
+		keys = new int[capacity];
+		queued = new boolean[capacity];
+	}
+
+	@Override
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	void insertOrDecrease(int id, int key) {
+		if (queued[id]) {
+			if (key >= keys[id]) {
+				return;
+			}
+			unlink(id);
+		} else {
+			queued[id] = true;
+			size++;
+		}
+		keys[id] = key;
+		int bucket = key % bucketHead.length;
+		int head = bucketHead[bucket];
+		next[id] = head;
+		previous[id] = -1;
+		if (head >= 0) {
+			previous[head] = id;
+		}
+		bucketHead[bucket] = id;
+	}
+
+	@Override
+	int poll() {
+		int bucket = current % bucketHead.length;
+		while (bucketHead[bucket] < 0) {
+			current++;
+			bucket++;
+			if (bucket == bucketHead.length) {
+				bucket = 0;
+			}
+		}
+		int id = bucketHead[bucket];
+		unlink(id);
+		queued[id] = false;
+		size--;
+		return id;
+	}
+
+	private void unlink(int id) {
+		int after = next[id];
+		int before = previous[id];
+		if (before >= 0) {
+			next[before] = after;
+		} else {
+			bucketHead[keys[id] % bucketHead.length] = after;
+		}
+		if (after >= 0) {
+			previous[after] = before;
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * <P>An immutable snapshot of a graph in compressed sparse row form.
+ * The outgoing edges of vertex id are stored in positions
+ * offsets[id] to offsets[id + 1] - 1 of two parallel arrays,
+ * "targets" and "weights".</P>
+ * 
+ * <P>Three flat int arrays replace the Node and Adjacency objects of
+ * a WeightedGraph, which uses far less memory and keeps the edges of
+ * a vertex next to each other for the algorithms that scan them.</P>
+ *
+ * @param <V>
+ */
+public class CompactGraph<V> implements IndexedGraph<V> {
+
+	private final Object[] vertices;
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] weights;
+	private final int maxWeight;
+
+	/* Built the first time getVertexId is called. */
+	private volatile HashMap<V, Integer> vertexIds;
+
+	/** Creates a snapshot of any indexed graph.  Empty edge slots of
+	 * the source graph are left out.
+	 * 
+	 * @param graph
+	 */
+	public CompactGraph(IndexedGraph<V> graph) {
+		int n = graph.getVertexCount();
+		vertices = new Object[n];
+		offsets = new int[n + 1];
+		for (int id = 0; id < n; id++) {
+			vertices[id] = graph.getVertex(id);
+			int count = 0;
+			int degree = graph.getDegree(id);
+			for (int i = 0; i < degree; i++) {
+				if (graph.getNeighbor(id, i) >= 0) {
+					count++;
+				}
+			}
+			offsets[id + 1] = offsets[id] + count;
+		}
+		targets = new int[offsets[n]];
+		weights = new int[offsets[n]];
+		int edge = 0;
+		int max = 0;
+		for (int id = 0; id < n; id++) {
+			int degree = graph.getDegree(id);
+			for (int i = 0; i < degree; i++) {
+				int target = graph.getNeighbor(id, i);
+				if (target >= 0) {
+					targets[edge] = target;
+					weights[edge] = graph.getNeighborWeight(id, i);
+					max = Math.max(max, weights[edge]);
+					edge++;
+				}
+			}
+		}
+		maxWeight = max;
+	}
+
+	/* Creates a snapshot from arrays that are already laid out. */
+	private CompactGraph(Object[] vertices, int[] offsets, int[] targets, int[] weights, int maxWeight) {
+		this.vertices = vertices;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+		this.maxWeight = maxWeight;
+	}
+
+	/** Returns a snapshot with the same vertices and every edge
+	 * turned around, so the edges out of a vertex are the edges that
+	 * lead into it here.  Searches that work backwards from a target
+	 * run on this graph.
+	 * 
+	 * @return the reversed graph
+	 */
+	public CompactGraph<V> reverse() {
+		int n = vertices.length;
+		int[] reversedOffsets = new int[n + 1];
+		for (int edge = 0; edge < targets.length; edge++) {
+			reversedOffsets[targets[edge] + 1]++;
+		}
+		for (int id = 0; id < n; id++) {
+			reversedOffsets[id + 1] += reversedOffsets[id];
+		}
+		int[] fill = Arrays.copyOf(reversedOffsets, n);
+		int[] reversedTargets = new int[targets.length];
+		int[] reversedWeights = new int[weights.length];
+		for (int id = 0; id < n; id++) {
+			for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+				int slot = fill[targets[edge]]++;
+				reversedTargets[slot] = id;
+				reversedWeights[slot] = weights[edge];
+			}
+		}
+		return new CompactGraph<V>(vertices, reversedOffsets, reversedTargets, reversedWeights, maxWeight);
+	}
+
+	/** Returns the number of edges in the graph. */
+	public int getEdgeCount() {
+		return targets.length;
+	}
+
+	/** Returns the number of bytes used by the arrays of this snapshot,
+	 * not counting the vertices themselves.
+	 */
+	public long getFootprintBytes() {
+		return 4L * (offsets.length + targets.length + weights.length) + 8L * vertices.length;
+	}
+
+	@Override
+	public int getVertexCount() {
+		return vertices.length;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V getVertex(int id) {
+		return (V) vertices[id];
+	}
+
+	@Override
+	public int getVertexId(V vertex) {
+		HashMap<V, Integer> ids = vertexIds;
+		if (ids == null) {
+			ids = new HashMap<V, Integer>();
+			for (int id = 0; id < vertices.length; id++) {
+				ids.put(getVertex(id), id);
+			}
+			vertexIds = ids;
+		}
+		Integer id = ids.get(vertex);
+		return id == null ? -1 : id;
+	}
+
+	@Override
+	public int getDegree(int id) {
+		return offsets[id + 1] - offsets[id];
+	}
+
+	@Override
+	public int getNeighbor(int id, int index) {
+		return targets[offsets[id] + index];
+	}
+
+	@Override
+	public int getNeighborWeight(int id, int index) {
+		return weights[offsets[id] + index];
+	}
+
+	@Override
+	public int getMaxWeight() {
+		return maxWeight;
+	}
+}
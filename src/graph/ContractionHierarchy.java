@@ -0,0 +1,556 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * <P>A contraction hierarchy: a graph prepared once so that shortest 
+ * path queries between any two vertices finish only a handful of 
+ * vertices, instead of the large part of the graph Dijkstra's algorithm
+ * or A* would.</P>
+ * 
+ * <P>Preparing it contracts the vertices one at a time, least important
+ * first.  Contracting a vertex v removes it from the remaining graph;
+ * for every pair of remaining neighbors u and w such that u-v-w was the
+ * only shortest path from u to w, a "shortcut" edge u-w is added with 
+ * the cost of that path.  Whether there is another path as short (a
+ * "witness") is checked with a small Dijkstra search from u that avoids
+ * v.  The order is chosen greedily by the "edge difference" (shortcuts
+ * added minus edges removed) plus the number of neighbors already 
+ * contracted, which spreads the contractions evenly over the graph; 
+ * priorities are brought up to date lazily, when a vertex reaches the
+ * front of the queue.</P>
+ * 
+ * <P>A query runs Dijkstra's algorithm forwards from the start and 
+ * backwards from the end at the same time, each only along edges that
+ * lead to vertices contracted later.  The two searches meet at the 
+ * most important vertex of the shortest path.  The path they find uses
+ * shortcuts, which are unpacked into the original edges afterwards;
+ * each shortcut remembers the vertex it bypassed.</P>
+ * 
+ * <P>The hierarchy is only valid for the graph as it was when it was
+ * built.  Queries may be run from any number of threads at once.</P>
+ */
+public class ContractionHierarchy<V> {
+
+	/* A witness search gives up after finishing this many vertices, 
+	 * and the shortcut is added even though it might not be needed.
+	 */
+	static final int WITNESS_SETTLE_LIMIT = 64;
+
+	private final IndexedGraph<V> graph;
+	private final int[] rank;
+	private final int shortcutCount;
+
+	/* Edges from each vertex to vertices contracted later ("up"), and
+	 * edges into each vertex from vertices contracted later ("down", 
+	 * followed backwards by the search from the end).  Each list runs
+	 * from start[v] to start[v + 1]; "middle" is the vertex a shortcut
+	 * bypasses, or -1 for an edge of the original graph.
+	 */
+	private final int[] upStart;
+	private final int[] upTarget;
+	private final int[] upWeight;
+	private final int[] upMiddle;
+	private final int[] downStart;
+	private final int[] downSource;
+	private final int[] downWeight;
+	private final int[] downMiddle;
+
+	private final ConcurrentLinkedQueue<SearchScratch> idle;
+
+	private ContractionHierarchy(IndexedGraph<V> graph, Builder builder) {
+		this.graph = graph;
+		int n = graph.getVertexCount();
+		rank = builder.rank;
+		upStart = new int[n + 1];
+		downStart = new int[n + 1];
+		int shortcuts = 0;
+		for (int u = 0; u < n; u++) {
+			Edges out = builder.kept[u];
+			for (int i = 0; i < out.size; i++) {
+				if (rank[u] < rank[out.other[i]]) {
+					upStart[u + 1]++;
+				} else {
+					downStart[out.other[i] + 1]++;
+				}
+				if (out.middle[i] >= 0) {
+					shortcuts++;
+				}
+			}
+		}
+		shortcutCount = shortcuts;
+		for (int v = 0; v < n; v++) {
+			upStart[v + 1] += upStart[v];
+			downStart[v + 1] += downStart[v];
+		}
+		upTarget = new int[upStart[n]];
+		upWeight = new int[upStart[n]];
+		upMiddle = new int[upStart[n]];
+		downSource = new int[downStart[n]];
+		downWeight = new int[downStart[n]];
+		downMiddle = new int[downStart[n]];
+		int[] upNext = Arrays.copyOf(upStart, n);
+		int[] downNext = Arrays.copyOf(downStart, n);
+		for (int u = 0; u < n; u++) {
+			Edges out = builder.kept[u];
+			for (int i = 0; i < out.size; i++) {
+				int w = out.other[i];
+				if (rank[u] < rank[w]) {
+					int slot = upNext[u]++;
+					upTarget[slot] = w;
+					upWeight[slot] = out.weight[i];
+					upMiddle[slot] = out.middle[i];
+				} else {
+					int slot = downNext[w]++;
+					downSource[slot] = u;
+					downWeight[slot] = out.weight[i];
+					downMiddle[slot] = out.middle[i];
+				}
+			}
+		}
+		idle = new ConcurrentLinkedQueue<SearchScratch>();
+	}
+
+	/** Prepares the hierarchy for a graph, which must not change while
+	 * the hierarchy is in use.
+	 * 
+	 * @param graph
+	 * @return the hierarchy
+	 */
+	public static <V> ContractionHierarchy<V> build(IndexedGraph<V> graph) {
+		Builder builder = new Builder(graph);
+		builder.contractAll();
+		return new ContractionHierarchy<V>(graph, builder);
+	}
+
+	/** Returns the number of shortcut edges added while preparing. */
+	public int getShortcutCount() {
+		return shortcutCount;
+	}
+
+	/** Returns the position of a vertex in the contraction order, from
+	 * 0 (contracted first) to the vertex count - 1.
+	 * 
+	 * @param id
+	 */
+	public int getRank(int id) {
+		return rank[id];
+	}
+
+	/** Finds the lowest cost path between two vertices.
+	 * 
+	 * @param start vertex where the path begins
+	 * @param end vertex where the path ends
+	 * @return the path, its cost, and the number of vertices finished
+	 * by the two searches
+	 */
+	public SearchResult<V> shortestPath(V start, V end) {
+		return shortestPath(graph.getVertexId(start), graph.getVertexId(end));
+	}
+
+	/** Finds the lowest cost path between two vertex ids.
+	 * 
+	 * @param source id of the vertex where the path begins
+	 * @param target id of the vertex where the path ends
+	 * @return the path, its cost, and the number of vertices finished
+	 * by the two searches
+	 */
+	public SearchResult<V> shortestPath(int source, int target) {
+		long begin = System.nanoTime();
+		if (source < 0 || target < 0) {
+			return notFound(0, begin);
+		}
+		SearchScratch forward = borrow();
+		SearchScratch backward = borrow();
+		try {
+			forward.begin();
+			backward.begin();
+			forward.reach(source, 0, -1);
+			backward.reach(target, 0, -1);
+			long best = Long.MAX_VALUE;
+			int meeting = -1;
+			int settled = 0;
+			while (true) {
+				/* a side is done once its smallest cost reaches the best
+				 * path found, since its costs only grow */
+				boolean forwardLive = forward.heapSize > 0 && forward.peekCost() < best;
+				boolean backwardLive = backward.heapSize > 0 && backward.peekCost() < best;
+				if (!forwardLive && !backwardLive) {
+					break;
+				}
+				boolean fromSource = forwardLive 
+						&& (!backwardLive || forward.peekCost() <= backward.peekCost());
+				SearchScratch side = fromSource ? forward : backward;
+				SearchScratch other = fromSource ? backward : forward;
+				int node = (int) side.pop();
+				if (side.isFinished(node)) {
+					continue;
+				}
+				side.finished[node] = side.epoch;
+				settled++;
+				int cost = side.costs[node];
+				if (other.isReached(node) && (long) cost + other.costs[node] < best) {
+					best = (long) cost + other.costs[node];
+					meeting = node;
+				}
+				int[] start = fromSource ? upStart : downStart;
+				int[] next = fromSource ? upTarget : downSource;
+				int[] weights = fromSource ? upWeight : downWeight;
+				for (int e = start[node]; e < start[node + 1]; e++) {
+					int v = next[e];
+					int candidate = cost + weights[e];
+					if (!side.isReached(v) || candidate < side.costs[v]) {
+						side.reach(v, candidate, node);
+					}
+				}
+			}
+			if (meeting < 0) {
+				return notFound(settled, begin);
+			}
+			return found(forward, backward, meeting, (int) best, settled, begin);
+		} finally {
+			idle.add(forward);
+			idle.add(backward);
+		}
+	}
+
+	private SearchScratch borrow() {
+		SearchScratch scratch = idle.poll();
+		if (scratch == null) {
+			scratch = new SearchScratch(graph.getVertexCount());
+		}
+		return scratch;
+	}
+
+	/* Follows both searches back from the meeting point, and unpacks 
+	 * every shortcut along the way into the edges it stands for.
+	 */
+	private SearchResult<V> found(SearchScratch forward, SearchScratch backward, int meeting, int cost, 
+			int settled, long begin) {
+		int[] coarse = GraphSearch.joinPaths(forward.parents, meeting, backward.parents, 
+				backward.parents[meeting]);
+		IntList path = new IntList();
+		path.add(coarse[0]);
+		int[] stack = new int[16];
+		for (int i = 1; i < coarse.length; i++) {
+			stack = unpack(coarse[i - 1], coarse[i], path, stack);
+		}
+		int[] pathIds = path.toArray();
+		ArrayList<V> vertices = new ArrayList<V>(pathIds.length);
+		for (int id : pathIds) {
+			vertices.add(graph.getVertex(id));
+		}
+		return new SearchResult<V>(pathIds, vertices, cost, settled, System.nanoTime() - begin);
+	}
+
+	/* Appends the vertices after "from" on the original path that the 
+	 * edge from-to stands for.  Shortcuts can be nested deeply, so the
+	 * pairs still to unpack are kept on an explicit stack, second half
+	 * below first half.  Returns the stack, which may have grown.
+	 */
+	private int[] unpack(int from, int to, IntList path, int[] stack) {
+		int size = 0;
+		stack[size++] = from;
+		stack[size++] = to;
+		while (size > 0) {
+			int b = stack[--size];
+			int a = stack[--size];
+			int middle = middleOf(a, b);
+			if (middle < 0) {
+				path.add(b);
+				continue;
+			}
+			if (size + 4 > stack.length) {
+				stack = Arrays.copyOf(stack, stack.length * 2);
+			}
+			stack[size++] = middle;
+			stack[size++] = b;
+			stack[size++] = a;
+			stack[size++] = middle;
+		}
+		return stack;
+	}
+
+	/* The vertex bypassed by the edge a-b, or -1 for an original edge. */
+	private int middleOf(int a, int b) {
+		if (rank[a] < rank[b]) {
+			for (int e = upStart[a]; e < upStart[a + 1]; e++) {
+				if (upTarget[e] == b) {
+					return upMiddle[e];
+				}
+			}
+		} else {
+			for (int e = downStart[b]; e < downStart[b + 1]; e++) {
+				if (downSource[e] == a) {
+					return downMiddle[e];
+				}
+			}
+		}
+		throw new IllegalStateException("no edge from " + a + " to " + b);
+	}
+
+	private SearchResult<V> notFound(int settled, long begin) {
+		return new SearchResult<V>(new int[0], new ArrayList<V>(), ShortestPathTree.UNREACHABLE, 
+				settled, System.nanoTime() - begin);
+	}
+
+	/* The edges leaving (or entering) one vertex while the hierarchy is
+	 * being built: the vertex at the other end, the weight, and the
+	 * vertex bypassed by a shortcut (-1 for an original edge).
+	 */
+	private static class Edges {
+		int[] other = new int[4];
+		int[] weight = new int[4];
+		int[] middle = new int[4];
+		int size;
+
+		int find(int v) {
+			for (int i = 0; i < size; i++) {
+				if (other[i] == v) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		void add(int v, int w, int m) {
+			if (size == other.length) {
+				other = Arrays.copyOf(other, size * 2);
+				weight = Arrays.copyOf(weight, size * 2);
+				middle = Arrays.copyOf(middle, size * 2);
+			}
+			other[size] = v;
+			weight[size] = w;
+			middle[size] = m;
+			size++;
+		}
+
+		/* Removes the edge to v, moving the last edge into its place. */
+		void remove(int v) {
+			int i = find(v);
+			size--;
+			other[i] = other[size];
+			weight[i] = weight[size];
+			middle[i] = middle[size];
+		}
+	}
+
+	/* Contracts the vertices and records their order. */
+	private static class Builder {
+
+		/* Added to priorities (which may be negative) to keep the keys
+		 * in the ordering heap positive.
+		 */
+		private static final int OFFSET = 1 << 30;
+
+		final int n;
+		/* edges between vertices not yet contracted */
+		final Edges[] out;
+		final Edges[] in;
+		/* edges of the hierarchy, by the vertex they leave; an edge is
+		 * moved here from "out" when either end is contracted */
+		final Edges[] kept;
+		final int[] rank;
+		final int[] deletedNeighbors;
+		final int[] priority;
+		final boolean[] contracted;
+		/* vertices stamped with the current "stamp" (the targets of a
+		 * witness search, or the neighbors of a contracted vertex) */
+		final int[] marks;
+		int stamp;
+		final SearchScratch witness;
+		final SearchScratch order;
+
+		Builder(IndexedGraph<?> graph) {
+			n = graph.getVertexCount();
+			out = new Edges[n];
+			in = new Edges[n];
+			kept = new Edges[n];
+			for (int v = 0; v < n; v++) {
+				out[v] = new Edges();
+				in[v] = new Edges();
+				kept[v] = new Edges();
+			}
+			for (int u = 0; u < n; u++) {
+				int degree = graph.getDegree(u);
+				for (int i = 0; i < degree; i++) {
+					int v = graph.getNeighbor(u, i);
+					if (v >= 0 && v != u) {
+						addOrLower(u, v, graph.getNeighborWeight(u, i), -1);
+					}
+				}
+			}
+			rank = new int[n];
+			deletedNeighbors = new int[n];
+			priority = new int[n];
+			contracted = new boolean[n];
+			marks = new int[n];
+			witness = new SearchScratch(n);
+			order = new SearchScratch(n);
+		}
+
+		/* Adds the edge u-w, or lowers the weight of the one already 
+		 * there, so that there is never more than one.
+		 */
+		void addOrLower(int u, int w, int weight, int middle) {
+			int i = out[u].find(w);
+			if (i < 0) {
+				out[u].add(w, weight, middle);
+				in[w].add(u, weight, middle);
+			} else if (weight < out[u].weight[i]) {
+				out[u].weight[i] = weight;
+				out[u].middle[i] = middle;
+				int j = in[w].find(u);
+				in[w].weight[j] = weight;
+				in[w].middle[j] = middle;
+			}
+		}
+
+		void contractAll() {
+			order.begin();
+			for (int v = 0; v < n; v++) {
+				priority[v] = computePriority(v);
+				order.push(priority[v] + OFFSET, v);
+			}
+			int next = 0;
+			while (order.heapSize > 0) {
+				long top = order.pop();
+				int v = (int) top;
+				if (contracted[v] || (int) (top >>> 32) - OFFSET != priority[v]) {
+					continue;
+				}
+				/* the priority may be out of date; if it has grown past
+				 * the next vertex's, put it back in its proper place */
+				int fresh = computePriority(v);
+				if (fresh > priority[v] && order.heapSize > 0 && fresh + OFFSET > order.peekCost()) {
+					priority[v] = fresh;
+					order.push(fresh + OFFSET, v);
+					continue;
+				}
+				contract(v, true);
+				contracted[v] = true;
+				rank[v] = next++;
+				detach(v);
+			}
+		}
+
+		/* Moves the remaining edges of v into the hierarchy, and brings
+		 * the priorities of its neighbors up to date.
+		 */
+		private void detach(int v) {
+			Edges outs = out[v];
+			Edges ins = in[v];
+			for (int i = 0; i < outs.size; i++) {
+				int w = outs.other[i];
+				kept[v].add(w, outs.weight[i], outs.middle[i]);
+				in[w].remove(v);
+			}
+			for (int i = 0; i < ins.size; i++) {
+				int u = ins.other[i];
+				kept[u].add(v, ins.weight[i], ins.middle[i]);
+				out[u].remove(v);
+			}
+			out[v] = null;
+			in[v] = null;
+			/* most neighbors are at both ends of an edge with v, but are
+			 * only updated once */
+			int neighbors = ++stamp;
+			IntList updated = new IntList();
+			for (Edges edges : new Edges[] {outs, ins}) {
+				for (int i = 0; i < edges.size; i++) {
+					int x = edges.other[i];
+					if (marks[x] != neighbors) {
+						marks[x] = neighbors;
+						updated.add(x);
+					}
+				}
+			}
+			for (int i = 0; i < updated.size(); i++) {
+				int x = updated.get(i);
+				deletedNeighbors[x]++;
+				priority[x] = computePriority(x);
+				order.push(priority[x] + OFFSET, x);
+			}
+		}
+
+		private int computePriority(int v) {
+			int value = contract(v, false) - out[v].size - in[v].size + deletedNeighbors[v];
+			return Math.max(-OFFSET, Math.min(OFFSET - 1, value));
+		}
+
+		/* Counts (and, if "apply" is true, adds) the shortcuts needed to
+		 * remove v from the remaining graph.
+		 */
+		private int contract(int v, boolean apply) {
+			Edges ins = in[v];
+			Edges outs = out[v];
+			int maxOut = 0;
+			int targets = ++stamp;
+			for (int j = 0; j < outs.size; j++) {
+				maxOut = Math.max(maxOut, outs.weight[j]);
+				marks[outs.other[j]] = targets;
+			}
+			int shortcuts = 0;
+			for (int i = 0; i < ins.size; i++) {
+				int u = ins.other[i];
+				int viaIn = ins.weight[i];
+				int remaining = marks[u] == targets ? outs.size - 1 : outs.size;
+				searchWitnesses(u, v, viaIn + maxOut, targets, remaining);
+				for (int j = 0; j < outs.size; j++) {
+					int w = outs.other[j];
+					if (w == u) {
+						continue;
+					}
+					int via = viaIn + outs.weight[j];
+					if (witness.isReached(w) && witness.costs[w] <= via) {
+						continue;
+					}
+					shortcuts++;
+					if (apply) {
+						addOrLower(u, w, via, v);
+					}
+				}
+			}
+			return shortcuts;
+		}
+
+		/* Dijkstra's algorithm from u through the remaining graph without
+		 * v, up to the given cost, or until the "remaining" vertices 
+		 * marked as targets have all been finished.  Any vertex it 
+		 * reaches has a path from u of (at most) the cost it was reached
+		 * with.
+		 */
+		private void searchWitnesses(int u, int v, int limit, int targets, int remaining) {
+			witness.begin();
+			witness.reach(u, 0, -1);
+			int settled = 0;
+			while (witness.heapSize > 0 && remaining > 0) {
+				int node = (int) witness.pop();
+				if (witness.isFinished(node)) {
+					continue;
+				}
+				witness.finished[node] = witness.epoch;
+				int cost = witness.costs[node];
+				if (cost > limit || ++settled > WITNESS_SETTLE_LIMIT) {
+					return;
+				}
+				if (marks[node] == targets && node != u) {
+					remaining--;
+				}
+				Edges edges = out[node];
+				for (int i = 0; i < edges.size; i++) {
+					int x = edges.other[i];
+					if (x == v) {
+						continue;
+					}
+					int candidate = cost + edges.weight[i];
+					if (!witness.isReached(x) || candidate < witness.costs[x]) {
+						witness.reach(x, candidate, node);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,562 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * <P>A smaller copy of a graph in which every corridor (a chain of
+ * vertices that each have exactly two neighbors) is replaced by a single
+ * edge weighted with the sum of the corridor's edges.  Only the dead
+ * ends and intersections are left as vertices.  In a perfect maze most
+ * junctures are in corridors, so the compressed graph is several times
+ * smaller than the MazeGraph it came from (see
+ * MazeGraph.compressCorridors).</P>
+ *
+ * <P>The vertices of the compressed graph have their own ids, from 0
+ * to getVertexCount() - 1, and the graph can be searched by any of the
+ * algorithms that take an IndexedGraph.  A side table keeps the
+ * vertices inside each corridor, in order, with their cost from the
+ * corridor's first end; expandPath uses it to turn a path in the
+ * compressed graph back into the full path in the original one.
+ * shortestPath answers queries between any two vertices of the
+ * original graph, including vertices inside corridors.</P>
+ *
+ * <P>The original graph must have every edge paired with one of the
+ * same weight in the other direction, as a MazeGraph does.  Like a
+ * CompactGraph, the compressed graph is a snapshot that does not
+ * follow later changes to the original.  Queries may be run from any
+ * number of threads at once.</P>
+ *
+ * @param <V>
+ */
+public class CorridorGraph<V> implements IndexedGraph<V> {
+
+	private final IndexedGraph<V> original;
+
+	/* the compressed graph: original ids of its vertices, and its
+	 * edges in compressed sparse row form.  edgeCorridor is -1 for an
+	 * edge of the original graph, or (corridor << 1 | 1 if the edge
+	 * runs through the corridor backwards). */
+	private final int[] originalIds;
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] weights;
+	private final int[] edgeCorridor;
+	private final int maxWeight;
+
+	/* for each original vertex: its compressed id, or -1 if it is
+	 * inside a corridor; and if it is, the corridor and its position
+	 * in "interior" */
+	private final int[] compressedIds;
+	private final int[] corridorOf;
+	private final int[] slotOf;
+
+	/* the corridors: the compressed ids of their two ends, and their
+	 * inner vertices in positions corridorStart[c] to
+	 * corridorStart[c + 1] - 1 of "interior", with their costs from
+	 * the first end in "interiorCost" */
+	private final int[] corridorFrom;
+	private final int[] corridorTo;
+	private final int[] corridorWeight;
+	private final int[] corridorStart;
+	private final int[] interior;
+	private final int[] interiorCost;
+
+	private final ConcurrentLinkedQueue<SearchScratch> idle;
+
+	/** Compresses a graph whose edges come in pairs of equal weight.
+	 *
+	 * @param graph
+	 */
+	CorridorGraph(IndexedGraph<V> graph) {
+		original = graph;
+		int n = graph.getVertexCount();
+		compressedIds = new int[n];
+		corridorOf = new int[n];
+		slotOf = new int[n];
+		Arrays.fill(corridorOf, -1);
+		Arrays.fill(slotOf, -1);
+
+		/* A vertex with two neighbors is in a corridor; everything else
+		 * is kept.  A ring made only of such vertices would have no end
+		 * to start from, so one vertex of each ring is kept as well.
+		 */
+		boolean[] kept = new boolean[n];
+		for (int v = 0; v < n; v++) {
+			kept[v] = !isInCorridor(graph, v);
+		}
+		boolean[] walked = new boolean[n];
+		for (int v = 0; v < n; v++) {
+			if (kept[v]) {
+				markCorridors(graph, kept, walked, v);
+			}
+		}
+		for (int v = 0; v < n; v++) {
+			if (!kept[v] && !walked[v]) {
+				kept[v] = true;
+				markCorridors(graph, kept, walked, v);
+			}
+		}
+		int count = 0;
+		for (int v = 0; v < n; v++) {
+			compressedIds[v] = kept[v] ? count++ : -1;
+		}
+		originalIds = new int[count];
+		for (int v = 0; v < n; v++) {
+			if (kept[v]) {
+				originalIds[compressedIds[v]] = v;
+			}
+		}
+
+		/* Walks out of every kept vertex along each of its edges to the
+		 * next kept vertex.  A corridor is recorded the first time it is
+		 * walked; the walk from its other end finds it already there,
+		 * and uses it backwards.
+		 */
+		IntList edgeTargets = new IntList();
+		IntList edgeWeights = new IntList();
+		IntList edgeCorridors = new IntList();
+		IntList from = new IntList();
+		IntList to = new IntList();
+		IntList totals = new IntList();
+		IntList starts = new IntList();
+		IntList inner = new IntList();
+		IntList innerCosts = new IntList();
+		offsets = new int[count + 1];
+		for (int id = 0; id < count; id++) {
+			int u = originalIds[id];
+			int degree = graph.getDegree(u);
+			for (int i = 0; i < degree; i++) {
+				int next = graph.getNeighbor(u, i);
+				if (next < 0 || next == u) {
+					continue;
+				}
+				int weight = graph.getNeighborWeight(u, i);
+				if (kept[next]) {
+					edgeTargets.add(compressedIds[next]);
+					edgeWeights.add(weight);
+					edgeCorridors.add(-1);
+					continue;
+				}
+				int corridor = corridorOf[next];
+				if (corridor >= 0) {
+					if (from.get(corridor) != to.get(corridor)) {
+						edgeTargets.add(from.get(corridor));
+						edgeWeights.add(totals.get(corridor));
+						edgeCorridors.add(corridor << 1 | 1);
+					}
+					continue;
+				}
+				corridor = from.size();
+				starts.add(inner.size());
+				int previous = u;
+				int cost = weight;
+				while (!kept[next]) {
+					corridorOf[next] = corridor;
+					slotOf[next] = inner.size();
+					inner.add(next);
+					innerCosts.add(cost);
+					int step = otherNeighborSlot(graph, next, previous);
+					previous = next;
+					cost += graph.getNeighborWeight(next, step);
+					next = graph.getNeighbor(next, step);
+				}
+				from.add(id);
+				to.add(compressedIds[next]);
+				totals.add(cost);
+				/* a corridor that leads back to where it started is no
+				 * use to a path, but its vertices still need a table */
+				if (next != u) {
+					edgeTargets.add(compressedIds[next]);
+					edgeWeights.add(cost);
+					edgeCorridors.add(corridor << 1);
+				}
+			}
+			offsets[id + 1] = edgeTargets.size();
+		}
+		starts.add(inner.size());
+		targets = edgeTargets.toArray();
+		weights = edgeWeights.toArray();
+		edgeCorridor = edgeCorridors.toArray();
+		int max = 0;
+		for (int weight : weights) {
+			max = Math.max(max, weight);
+		}
+		maxWeight = max;
+		corridorFrom = from.toArray();
+		corridorTo = to.toArray();
+		corridorWeight = totals.toArray();
+		corridorStart = starts.toArray();
+		interior = inner.toArray();
+		interiorCost = innerCosts.toArray();
+		idle = new ConcurrentLinkedQueue<SearchScratch>();
+	}
+
+	/* True if v has exactly two edges, to two different vertices. */
+	private static boolean isInCorridor(IndexedGraph<?> graph, int v) {
+		int first = -1;
+		int second = -1;
+		int degree = graph.getDegree(v);
+		for (int i = 0; i < degree; i++) {
+			int next = graph.getNeighbor(v, i);
+			if (next < 0) {
+				continue;
+			}
+			if (next == v || second >= 0) {
+				return false;
+			}
+			if (first < 0) {
+				first = next;
+			} else {
+				second = next;
+			}
+		}
+		return second >= 0 && second != first;
+	}
+
+	/* The edge slot of corridor vertex v that does not lead back to
+	 * "previous".
+	 */
+	private static int otherNeighborSlot(IndexedGraph<?> graph, int v, int previous) {
+		int degree = graph.getDegree(v);
+		for (int i = 0; i < degree; i++) {
+			int next = graph.getNeighbor(v, i);
+			if (next >= 0 && next != previous) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("vertex " + v + " is not in a corridor");
+	}
+
+	/* Marks the corridor vertices reached by walking out of u. */
+	private static void markCorridors(IndexedGraph<?> graph, boolean[] kept, boolean[] walked, int u) {
+		int degree = graph.getDegree(u);
+		for (int i = 0; i < degree; i++) {
+			int previous = u;
+			int next = graph.getNeighbor(u, i);
+			while (next >= 0 && !kept[next] && !walked[next]) {
+				walked[next] = true;
+				int step = otherNeighborSlot(graph, next, previous);
+				previous = next;
+				next = graph.getNeighbor(next, step);
+			}
+		}
+	}
+
+	/** Returns the number of vertices in the original graph. */
+	public int getOriginalVertexCount() {
+		return original.getVertexCount();
+	}
+
+	/** Returns the number of edges in the compressed graph. */
+	public int getEdgeCount() {
+		return targets.length;
+	}
+
+	/** Returns the number of corridors that were replaced by edges. */
+	public int getCorridorCount() {
+		return corridorFrom.length;
+	}
+
+	/** Returns the original id of a vertex of the compressed graph.
+	 *
+	 * @param id compressed id
+	 */
+	public int getOriginalId(int id) {
+		return originalIds[id];
+	}
+
+	/** Returns the compressed id of a vertex of the original graph.
+	 *
+	 * @param originalId
+	 * @return its id in this graph, or -1 if it is inside a corridor
+	 */
+	public int getCompressedId(int originalId) {
+		return compressedIds[originalId];
+	}
+
+	/** Returns the number of bytes used by the arrays of the compressed
+	 * graph and its side table.
+	 */
+	public long getFootprintBytes() {
+		return 4L * (originalIds.length + offsets.length + targets.length * 3 + compressedIds.length * 3
+				+ corridorFrom.length * 4 + interior.length * 2);
+	}
+
+	/** Turns a path in the compressed graph back into the path it
+	 * stands for in the original graph.  Between two vertices joined by
+	 * more than one edge, the lightest one is taken, as a shortest path
+	 * would.
+	 *
+	 * @param path compressed ids of consecutive vertices
+	 * @return original ids of every vertex along the path
+	 */
+	public int[] expandPath(int[] path) {
+		IntList expanded = new IntList();
+		if (path.length > 0) {
+			expanded.add(originalIds[path[0]]);
+		}
+		for (int i = 1; i < path.length; i++) {
+			appendEdge(path[i - 1], path[i], expanded);
+		}
+		return expanded.toArray();
+	}
+
+	/* Appends the inner vertices and the end of the lightest edge a-b. */
+	private void appendEdge(int a, int b, IntList expanded) {
+		int best = -1;
+		for (int e = offsets[a]; e < offsets[a + 1]; e++) {
+			if (targets[e] == b && (best < 0 || weights[e] < weights[best])) {
+				best = e;
+			}
+		}
+		if (best < 0) {
+			throw new IllegalArgumentException("no edge from " + a + " to " + b);
+		}
+		int code = edgeCorridor[best];
+		if (code >= 0) {
+			int corridor = code >> 1;
+			if ((code & 1) != 0) {
+				appendInterior(corridor, true, corridorStart[corridor + 1] - 1, expanded);
+			} else {
+				appendInterior(corridor, false, corridorStart[corridor], expanded);
+			}
+		}
+		expanded.add(originalIds[b]);
+	}
+
+	/* Appends the inner vertices of a corridor, forwards from (and
+	 * including) the given slot to its "to" end, or backwards to its
+	 * "from" end.
+	 */
+	private void appendInterior(int corridor, boolean backwards, int slot, IntList expanded) {
+		if (backwards) {
+			for (int s = slot; s >= corridorStart[corridor]; s--) {
+				expanded.add(interior[s]);
+			}
+		} else {
+			for (int s = slot; s < corridorStart[corridor + 1]; s++) {
+				expanded.add(interior[s]);
+			}
+		}
+	}
+
+	/** Finds the lowest cost path between two vertices of the original
+	 * graph.
+	 *
+	 * @param start vertex where the path begins
+	 * @param end vertex where the path ends
+	 * @return the full path in the original graph, its cost, and the
+	 * number of compressed vertices finished
+	 */
+	public SearchResult<V> shortestPath(V start, V end) {
+		return shortestPath(original.getVertexId(start), original.getVertexId(end));
+	}
+
+	/** Finds the lowest cost path between two original vertex ids, with
+	 * Dijkstra's algorithm on the compressed graph.  A search that starts
+	 * inside a corridor begins at both of its ends at once, with the
+	 * cost of getting there, and one that ends inside a corridor is
+	 * finished by the cheaper of its ends.
+	 *
+	 * @param source original id of the vertex where the path begins
+	 * @param target original id of the vertex where the path ends
+	 * @return the full path in the original graph, its cost, and the
+	 * number of compressed vertices finished
+	 */
+	public SearchResult<V> shortestPath(int source, int target) {
+		long begin = System.nanoTime();
+		if (source < 0 || target < 0) {
+			return result(new int[0], ShortestPathTree.UNREACHABLE, 0, begin);
+		}
+		if (source == target) {
+			return result(new int[] {source}, 0, 0, begin);
+		}
+		SearchScratch scratch = borrow();
+		try {
+			scratch.begin();
+			int sourceCorridor = corridorOf[source];
+			if (sourceCorridor < 0) {
+				scratch.reach(compressedIds[source], 0, -1);
+			} else {
+				int toFrom = interiorCost[slotOf[source]];
+				reachCheaper(scratch, corridorFrom[sourceCorridor], toFrom);
+				reachCheaper(scratch, corridorTo[sourceCorridor], corridorWeight[sourceCorridor] - toFrom);
+			}
+			int targetCorridor = corridorOf[target];
+			long best = ShortestPathTree.UNREACHABLE;
+			int bestEnd = -1;
+			if (sourceCorridor >= 0 && sourceCorridor == targetCorridor) {
+				/* along the corridor, without leaving it */
+				best = Math.abs(interiorCost[slotOf[source]] - interiorCost[slotOf[target]]);
+			}
+			int settled = 0;
+			while (scratch.heapSize > 0 && scratch.peekCost() < best) {
+				int node = (int) scratch.pop();
+				if (scratch.isFinished(node)) {
+					continue;
+				}
+				scratch.finished[node] = scratch.epoch;
+				settled++;
+				int cost = scratch.costs[node];
+				long total = (long) cost + remainingCost(node, target);
+				if (total < best) {
+					best = total;
+					bestEnd = node;
+				}
+				for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+					int v = targets[e];
+					int candidate = cost + weights[e];
+					if (!scratch.isReached(v) || candidate < scratch.costs[v]) {
+						scratch.reach(v, candidate, node);
+					}
+				}
+			}
+			if (best == ShortestPathTree.UNREACHABLE) {
+				return result(new int[0], ShortestPathTree.UNREACHABLE, settled, begin);
+			}
+			if (bestEnd < 0) {
+				return result(corridorSlice(source, target), (int) best, settled, begin);
+			}
+			return result(fullPath(scratch, source, target, bestEnd), (int) best, settled, begin);
+		} finally {
+			idle.add(scratch);
+		}
+	}
+
+	private static void reachCheaper(SearchScratch scratch, int id, int cost) {
+		if (!scratch.isReached(id) || cost < scratch.costs[id]) {
+			scratch.reach(id, cost, -1);
+		}
+	}
+
+	/* The cost from compressed vertex "node" to the original target,
+	 * if the target is the node itself or inside a corridor that ends
+	 * at it (UNREACHABLE otherwise).
+	 */
+	private long remainingCost(int node, int target) {
+		int corridor = corridorOf[target];
+		if (corridor < 0) {
+			return compressedIds[target] == node ? 0 : ShortestPathTree.UNREACHABLE;
+		}
+		int fromCost = interiorCost[slotOf[target]];
+		long cost = ShortestPathTree.UNREACHABLE;
+		if (corridorFrom[corridor] == node) {
+			cost = fromCost;
+		}
+		if (corridorTo[corridor] == node) {
+			cost = Math.min(cost, corridorWeight[corridor] - fromCost);
+		}
+		return cost;
+	}
+
+	/* The path from source to target when both are inside the same
+	 * corridor.
+	 */
+	private int[] corridorSlice(int source, int target) {
+		int first = slotOf[source];
+		int last = slotOf[target];
+		int step = first <= last ? 1 : -1;
+		int[] path = new int[Math.abs(last - first) + 1];
+		for (int i = 0; i < path.length; i++) {
+			path[i] = interior[first + i * step];
+		}
+		return path;
+	}
+
+	/* Joins the stretch of corridor from the source to the vertex where
+	 * the search began, the search's path to bestEnd, and the stretch
+	 * from bestEnd to the target.
+	 */
+	private int[] fullPath(SearchScratch scratch, int source, int target, int bestEnd) {
+		IntList reversed = new IntList();
+		for (int v = bestEnd; v != -1; v = scratch.parents[v]) {
+			reversed.add(v);
+		}
+		int[] path = new int[reversed.size()];
+		for (int i = 0; i < path.length; i++) {
+			path[i] = reversed.get(path.length - 1 - i);
+		}
+		IntList expanded = new IntList();
+		int sourceCorridor = corridorOf[source];
+		if (sourceCorridor >= 0) {
+			/* walk from the source to the end the search began at */
+			int first = path[0];
+			int toFrom = interiorCost[slotOf[source]];
+			boolean towardsFrom = corridorFrom[sourceCorridor] == first
+					&& scratch.costs[first] == toFrom;
+			appendInterior(sourceCorridor, towardsFrom, slotOf[source], expanded);
+			expanded.add(originalIds[first]);
+		} else {
+			expanded.add(source);
+		}
+		for (int i = 1; i < path.length; i++) {
+			appendEdge(path[i - 1], path[i], expanded);
+		}
+		int targetCorridor = corridorOf[target];
+		if (targetCorridor >= 0) {
+			int fromCost = interiorCost[slotOf[target]];
+			boolean enterAtFrom = corridorFrom[targetCorridor] == bestEnd
+					&& (corridorTo[targetCorridor] != bestEnd || fromCost <= corridorWeight[targetCorridor] - fromCost);
+			int first = enterAtFrom ? corridorStart[targetCorridor] : corridorStart[targetCorridor + 1] - 1;
+			int step = enterAtFrom ? 1 : -1;
+			for (int s = first; s != slotOf[target] + step; s += step) {
+				expanded.add(interior[s]);
+			}
+		}
+		return expanded.toArray();
+	}
+
+	private SearchScratch borrow() {
+		SearchScratch scratch = idle.poll();
+		if (scratch == null) {
+			scratch = new SearchScratch(originalIds.length);
+		}
+		return scratch;
+	}
+
+	private SearchResult<V> result(int[] pathIds, int cost, int settled, long begin) {
+		ArrayList<V> path = new ArrayList<V>(pathIds.length);
+		for (int id : pathIds) {
+			path.add(original.getVertex(id));
+		}
+		return new SearchResult<V>(pathIds, path, cost, settled, System.nanoTime() - begin);
+	}
+
+	@Override
+	public int getVertexCount() {
+		return originalIds.length;
+	}
+
+	@Override
+	public V getVertex(int id) {
+		return original.getVertex(originalIds[id]);
+	}
+
+	@Override
+	public int getVertexId(V vertex) {
+		int id = original.getVertexId(vertex);
+		return id < 0 ? -1 : compressedIds[id];
+	}
+
+	@Override
+	public int getDegree(int id) {
+		return offsets[id + 1] - offsets[id];
+	}
+
+	@Override
+	public int getNeighbor(int id, int index) {
+		return targets[offsets[id] + index];
+	}
+
+	@Override
+	public int getNeighborWeight(int id, int index) {
+		return weights[offsets[id] + index];
+	}
+
+	@Override
+	public int getMaxWeight() {
+		return maxWeight;
+	}
+}
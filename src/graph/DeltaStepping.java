@@ -0,0 +1,220 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <P>A parallel single-source shortest path search (delta-stepping).
+ * Tentative costs are kept in buckets of width delta, and all of the
+ * vertices in the lowest non-empty bucket have their edges relaxed at
+ * once, spread over the threads of a ForkJoinPool.  Edges no heavier
+ * than delta ("light" edges) can put vertices back into the bucket
+ * being worked on, so they are relaxed until the bucket stays empty;
+ * the remaining "heavy" edges are relaxed once per bucket.</P>
+ * 
+ * <P>The costs found are exactly those of Dijkstra's algorithm.  Each
+ * vertex is given the lowest numbered predecessor that lies on a
+ * lowest cost path to it, so the predecessor tree does not depend on
+ * how the work was split between threads, and it is the same tree
+ * that ShortestPaths.dijkstra finds whenever lowest cost paths are
+ * unique (as in a maze with no loops).  Edge weights must be positive
+ * for the predecessors to form a tree.</P>
+ */
+public class DeltaStepping {
+
+	/* Number of vertices below which a task relaxes their edges
+	 * itself instead of splitting the work further.
+	 */
+	private static final int SPLIT_THRESHOLD = 512;
+
+	/* A label packs a tentative cost into the upper 32 bits and the
+	 * predecessor into the lower 32 bits, so that comparing labels 
+	 * compares costs first and breaks ties by predecessor, and one
+	 * compare-and-set updates both.
+	 */
+	private static final long NO_LABEL = label(ShortestPathTree.UNREACHABLE, -1);
+
+	private final ForkJoinPool pool;
+	private final int delta;
+
+	/** Creates a search that runs on the given pool, with buckets
+	 * of the given width.
+	 * 
+	 * @param pool
+	 * @param delta bucket width; at least 1
+	 */
+	public DeltaStepping(ForkJoinPool pool, int delta) {
+		if (delta < 1) {
+			throw new IllegalArgumentException("delta must be at least 1");
+		}
+		this.pool = pool;
+		this.delta = delta;
+	}
+
+	/** Returns a bucket width suited to the graph: half of its largest
+	 * edge weight.  For a Maze, with weights from 1 to 9, this puts 
+	 * about half of the edges in the light class, which keeps the
+	 * number of buckets low without making the light phases repeat
+	 * too often.
+	 * 
+	 * @param graph
+	 * @return bucket width
+	 */
+	public static int chooseDelta(IndexedGraph<?> graph) {
+		return Math.max(1, graph.getMaxWeight() / 2);
+	}
+
+	private static long label(int cost, int predecessor) {
+		return ((long) cost << 32) | (predecessor & 0xffffffffL);
+	}
+
+	private static int costOf(long label) {
+		return (int) (label >>> 32);
+	}
+
+	/** Finds the lowest cost path from the source to every vertex.
+	 * 
+	 * @param graph
+	 * @param source id of the vertex where the search begins
+	 * @return costs and predecessors of every vertex
+	 */
+	public ShortestPathTree run(IndexedGraph<?> graph, int source) {
+		int n = graph.getVertexCount();
+		AtomicLongArray labels = new AtomicLongArray(n);
+		for (int id = 0; id < n; id++) {
+			labels.set(id, NO_LABEL);
+		}
+		labels.set(source, label(0, -1));
+
+		ArrayList<IntList> buckets = new ArrayList<IntList>();
+		IntList first = new IntList();
+		first.add(source);
+		buckets.add(first);
+		/* the last round in which each vertex was relaxed, and the 
+		 * last bucket in which it was settled, both counted from 1 */
+		int[] relaxedIn = new int[n];
+		int[] settledIn = new int[n];
+		int round = 0;
+
+		for (int current = 0; current < buckets.size(); current++) {
+			IntList settled = new IntList();
+			while (buckets.get(current).size() > 0) {
+				IntList bucket = buckets.get(current);
+				buckets.set(current, new IntList());
+				round++;
+				IntList frontier = new IntList();
+				for (int i = 0; i < bucket.size(); i++) {
+					int v = bucket.get(i);
+					/* skip entries left behind when a cost fell to a lower
+					 * bucket, and vertices queued more than once */
+					if (costOf(labels.get(v)) / delta == current && relaxedIn[v] != round) {
+						relaxedIn[v] = round;
+						frontier.add(v);
+						if (settledIn[v] != current + 1) {
+							settledIn[v] = current + 1;
+							settled.add(v);
+						}
+					}
+				}
+				IntList changed = pool.invoke(new Relaxation(graph, labels, source, frontier.toArray(), 
+						0, frontier.size(), true));
+				addToBuckets(buckets, labels, changed);
+			}
+			IntList changed = pool.invoke(new Relaxation(graph, labels, source, settled.toArray(), 
+					0, settled.size(), false));
+			addToBuckets(buckets, labels, changed);
+		}
+
+		int[] costs = new int[n];
+		int[] predecessors = new int[n];
+		int reached = 0;
+		for (int id = 0; id < n; id++) {
+			long label = labels.get(id);
+			costs[id] = costOf(label);
+			predecessors[id] = (int) label;
+			if (costs[id] != ShortestPathTree.UNREACHABLE) {
+				reached++;
+			}
+		}
+		return new ShortestPathTree(source, costs, predecessors, reached);
+	}
+
+	private void addToBuckets(ArrayList<IntList> buckets, AtomicLongArray labels, IntList changed) {
+		for (int i = 0; i < changed.size(); i++) {
+			int v = changed.get(i);
+			int bucket = costOf(labels.get(v)) / delta;
+			while (buckets.size() <= bucket) {
+				buckets.add(new IntList());
+			}
+			buckets.get(bucket).add(v);
+		}
+	}
+
+	/* Relaxes the light (or heavy) edges of vertices[from .. to - 1],
+	 * returning the vertices whose labels were lowered.
+	 */
+	private class Relaxation extends RecursiveTask<IntList> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final IndexedGraph<?> graph;
+		private final AtomicLongArray labels;
+		private final int source;
+		private final int[] vertices;
+		private final int from;
+		private final int to;
+		private final boolean light;
+
+		Relaxation(IndexedGraph<?> graph, AtomicLongArray labels, int source, int[] vertices, 
+				int from, int to, boolean light) {
+			this.graph = graph;
+			this.labels = labels;
+			this.source = source;
+			this.vertices = vertices;
+			this.from = from;
+			this.to = to;
+			this.light = light;
+		}
+
+		@Override
+		protected IntList compute() {
+			if (to - from > SPLIT_THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				Relaxation left = new Relaxation(graph, labels, source, vertices, from, middle, light);
+				left.fork();
+				IntList right = new Relaxation(graph, labels, source, vertices, middle, to, light).compute();
+				IntList result = left.join();
+				result.addAll(right);
+				return result;
+			}
+			IntList changed = new IntList();
+			for (int i = from; i < to; i++) {
+				int node = vertices[i];
+				int cost = costOf(labels.get(node));
+				int degree = graph.getDegree(node);
+				for (int e = 0; e < degree; e++) {
+					int next = graph.getNeighbor(node, e);
+					if (next < 0 || next == source) {
+						continue;
+					}
+					int weight = graph.getNeighborWeight(node, e);
+					if ((weight <= delta) != light) {
+						continue;
+					}
+					long candidate = label(cost + weight, node);
+					long old = labels.get(next);
+					while (candidate < old) {
+						if (labels.compareAndSet(next, old, candidate)) {
+							changed.add(next);
+							break;
+						}
+						old = labels.get(next);
+					}
+				}
+			}
+			return changed;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package graph;
+
+/**
+ * Selects the priority queue used by Dijkstra's algorithm.
+ */
+public enum DijkstraMode {
+	
+	/** Use the bucket queue when every edge weight is at most
+	 * ShortestPaths.BUCKET_QUEUE_MAX_WEIGHT, otherwise the binary heap. 
+	 */
+	AUTOMATIC,
+	
+	/** Indexed binary heap; O((V + E) log V) for any weights. */
+	BINARY_HEAP,
+	
+	/** Circular bucket queue (Dial's algorithm); O(V + E + W) where 
+	 * W is the largest cost found, best for small integer weights. 
+	 */
+	BUCKET_QUEUE
+}
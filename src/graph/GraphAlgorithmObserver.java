@@ -63,4 +63,36 @@ public interface GraphAlgorithmObserver<V> {
 	 * path from start to finish.
 	 */
 	public void notifyDijkstraIsOver(List<V> path);
+	
+	/** 
+	 * <P>Called by the graph during a bidirectional search when a 
+	 * vertex is visited by one of the two frontiers.  Unless this is
+	 * overridden, it simply calls notifyVisit.</P>
+	 * 
+	 * @param vertexBeingVisited
+	 * @param fromStart true if the frontier growing from the starting
+	 * vertex advanced, false if the one growing from the finishing
+	 * vertex did
+	 */
+	public default void notifyBidirectionalVisit(V vertexBeingVisited, boolean fromStart) {
+		notifyVisit(vertexBeingVisited);
+	}
+	
+	/** 
+	 * <P>Called by the graph during a bidirectional Dijkstra search
+	 * when a vertex is added to the "Finished Set" of one of the two
+	 * searches.  Unless this is overridden, it simply calls 
+	 * notifyDijkstraVertexFinished.</P>
+	 * 
+	 * @param vertexAddedToFinishedSet
+	 * @param costOfPath cost of the best path from the starting vertex
+	 * to this one (if fromStart is true), or from this vertex to the
+	 * finishing vertex (if fromStart is false)
+	 * @param fromStart true if the search from the starting vertex
+	 * advanced, false if the one from the finishing vertex did
+	 */
+	public default void notifyBidirectionalVertexFinished(V vertexAddedToFinishedSet, 
+			Integer costOfPath, boolean fromStart) {
+		notifyDijkstraVertexFinished(vertexAddedToFinishedSet, costOfPath);
+	}
 }
@@ -0,0 +1,278 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * <P>Breadth-first and depth-first search over the vertex ids of an
+ * IndexedGraph.</P>
+ * 
+ * <P>Both searches begin at the "start" vertex and stop as soon as
+ * the "end" vertex has been visited.  The optional SearchListener is
+ * told about each vertex as it is visited.</P>
+ */
+public class GraphSearch {
+
+	private GraphSearch() {
+	}
+
+	/** Performs a breadth-first search.
+	 * 
+	 * @param graph
+	 * @param start id of the vertex where the search begins
+	 * @param end id of the vertex where the search ends, or -1 to
+	 * visit every vertex that can be reached from start
+	 * @return ids of the visited vertices, in the order they were visited
+	 */
+	public static int[] breadthFirst(IndexedGraph<?> graph, int start, int end) {
+		VisitRecorder recorder = new VisitRecorder();
+		breadthFirst(graph, start, end, new IntRingQueue(64), null, recorder);
+		return recorder.toArray();
+	}
+
+	/* Visits vertices in order of their distance (in edges) from 
+	 * start; among vertices at the same distance, in the order they 
+	 * were first discovered.  Each vertex is marked when it is queued,
+	 * so the queue never holds more than the current frontier.  If
+	 * "parents" is not null, the vertex each one was discovered from 
+	 * is stored in it (the entries of undiscovered vertices are left
+	 * alone).  Returns the number of vertices visited.
+	 */
+	static int breadthFirst(IndexedGraph<?> graph, int start, int end, IntRingQueue queue, 
+			int[] parents, SearchListener listener) {
+		BitSet discovered = new BitSet(graph.getVertexCount());
+		int visited = 0;
+		queue.clear();
+		queue.add(start);
+		discovered.set(start);
+		if (parents != null) {
+			parents[start] = -1;
+		}
+		while (!queue.isEmpty()) {
+			int node = queue.remove();
+			visited++;
+			if (listener != null) {
+				listener.vertexVisited(node);
+			}
+			if (node == end) {
+				break;
+			}
+			int degree = graph.getDegree(node);
+			for (int i = 0; i < degree; i++) {
+				int next = graph.getNeighbor(node, i);
+				if (next >= 0 && !discovered.get(next)) {
+					discovered.set(next);
+					if (parents != null) {
+						parents[next] = node;
+					}
+					queue.add(next);
+				}
+			}
+		}
+		return visited;
+	}
+
+	/** Performs a depth-first search.
+	 * 
+	 * @param graph
+	 * @param start id of the vertex where the search begins
+	 * @param end id of the vertex where the search ends
+	 * @return ids along the path the search found from start to end,
+	 * or an empty array if end cannot be reached
+	 */
+	public static int[] depthFirst(IndexedGraph<?> graph, int start, int end) {
+		return depthFirst(graph, start, end, new BitSet(graph.getVertexCount()));
+	}
+
+	/* The search above, marking each vertex it visits in "visited". */
+	static int[] depthFirst(IndexedGraph<?> graph, int start, int end, BitSet visited) {
+		/* The stack of frames: the vertex, and the next of its edge
+		 * slots to try.  The vertices on the stack are exactly the 
+		 * path from start to the vertex on top.
+		 */
+		int[] vertices = new int[64];
+		int[] nextEdge = new int[64];
+		int depth = 0;
+		vertices[depth] = start;
+		nextEdge[depth] = 0;
+		depth++;
+		visited.set(start);
+		if (start == end) {
+			return new int[] {start};
+		}
+		while (depth > 0) {
+			int top = depth - 1;
+			int node = vertices[top];
+			int i = nextEdge[top];
+			if (i == graph.getDegree(node)) {
+				depth--;
+				continue;
+			}
+			nextEdge[top] = i + 1;
+			int next = graph.getNeighbor(node, i);
+			if (next < 0 || visited.get(next)) {
+				continue;
+			}
+			visited.set(next);
+			if (depth == vertices.length) {
+				vertices = Arrays.copyOf(vertices, depth * 2);
+				nextEdge = Arrays.copyOf(nextEdge, depth * 2);
+			}
+			vertices[depth] = next;
+			nextEdge[depth] = 0;
+			depth++;
+			if (next == end) {
+				return Arrays.copyOf(vertices, depth);
+			}
+		}
+		return new int[0];
+	}
+
+	/** Performs a bidirectional breadth-first search, which grows one
+	 * frontier from start and another from end until they meet.
+	 * 
+	 * @param forward the graph
+	 * @param backward the same graph with every edge reversed (for a 
+	 * graph whose edges all come in pairs, the graph itself)
+	 * @param start id of the vertex where the path begins
+	 * @param end id of the vertex where the path ends
+	 * @return ids along a path from start to end with the fewest edges,
+	 * or an empty array if end cannot be reached
+	 */
+	public static int[] bidirectionalBreadthFirst(IndexedGraph<?> forward, IndexedGraph<?> backward, 
+			int start, int end) {
+		return bidirectionalBreadthFirst(forward, backward, start, end, null);
+	}
+
+	/* Expands a whole level of the smaller frontier at a time.  When
+	 * that level touches vertices already reached from the other end,
+	 * the best of those meetings gives a shortest path: no path can
+	 * be shorter, or the two searches would have met a level earlier.
+	 */
+	static int[] bidirectionalBreadthFirst(IndexedGraph<?> forward, IndexedGraph<?> backward, 
+			int start, int end, SearchListener listener) {
+		if (listener != null) {
+			listener.frontierVisited(start, true);
+		}
+		if (start == end) {
+			return new int[] {start};
+		}
+		if (listener != null) {
+			listener.frontierVisited(end, false);
+		}
+		int n = forward.getVertexCount();
+		/* for each side: distance in edges from its end (-1 if not yet 
+		 * reached), and the vertex it was reached from */
+		int[] startDistance = new int[n];
+		int[] endDistance = new int[n];
+		int[] startParent = new int[n];
+		int[] endParent = new int[n];
+		Arrays.fill(startDistance, -1);
+		Arrays.fill(endDistance, -1);
+		startDistance[start] = 0;
+		endDistance[end] = 0;
+		startParent[start] = -1;
+		endParent[end] = -1;
+		int[] startFrontier = {start};
+		int[] endFrontier = {end};
+
+		while (startFrontier.length > 0 && endFrontier.length > 0) {
+			boolean fromStart = startFrontier.length <= endFrontier.length;
+			IndexedGraph<?> graph = fromStart ? forward : backward;
+			int[] frontier = fromStart ? startFrontier : endFrontier;
+			int[] distance = fromStart ? startDistance : endDistance;
+			int[] parent = fromStart ? startParent : endParent;
+			int[] otherDistance = fromStart ? endDistance : startDistance;
+
+			int[] next = new int[16];
+			int nextSize = 0;
+			int best = Integer.MAX_VALUE;
+			int bestFrom = -1;
+			int bestTo = -1;
+			for (int node : frontier) {
+				int degree = graph.getDegree(node);
+				for (int i = 0; i < degree; i++) {
+					int v = graph.getNeighbor(node, i);
+					if (v < 0) {
+						continue;
+					}
+					if (otherDistance[v] >= 0 && distance[node] + 1 + otherDistance[v] < best) {
+						best = distance[node] + 1 + otherDistance[v];
+						bestFrom = node;
+						bestTo = v;
+					}
+					if (distance[v] < 0) {
+						distance[v] = distance[node] + 1;
+						parent[v] = node;
+						if (nextSize == next.length) {
+							next = Arrays.copyOf(next, nextSize * 2);
+						}
+						next[nextSize++] = v;
+						if (listener != null) {
+							listener.frontierVisited(v, fromStart);
+						}
+					}
+				}
+			}
+			if (bestFrom >= 0) {
+				/* the edge bestFrom - bestTo joins the two searches */
+				int last = fromStart ? bestFrom : bestTo;
+				int first = fromStart ? bestTo : bestFrom;
+				return joinPaths(startParent, last, endParent, first);
+			}
+			if (fromStart) {
+				startFrontier = Arrays.copyOf(next, nextSize);
+			} else {
+				endFrontier = Arrays.copyOf(next, nextSize);
+			}
+		}
+		return new int[0];
+	}
+
+	/* Joins the path from the start to "last" (following startParent
+	 * back from "last") with the path from "first" to the end 
+	 * (following endParent forward from "first").
+	 */
+	static int[] joinPaths(int[] startParent, int last, int[] endParent, int first) {
+		int length = 0;
+		for (int v = last; v != -1; v = startParent[v]) {
+			length++;
+		}
+		int headLength = length;
+		for (int v = first; v != -1; v = endParent[v]) {
+			length++;
+		}
+		int[] path = new int[length];
+		int i = headLength;
+		for (int v = last; v != -1; v = startParent[v]) {
+			path[--i] = v;
+		}
+		i = headLength;
+		for (int v = first; v != -1; v = endParent[v]) {
+			path[i++] = v;
+		}
+		return path;
+	}
+
+	/* Collects the ids of visited vertices. */
+	private static class VisitRecorder implements SearchListener {
+		private int[] ids = new int[16];
+		private int count;
+
+		@Override
+		public void vertexVisited(int id) {
+			if (count == ids.length) {
+				ids = Arrays.copyOf(ids, count * 2);
+			}
+			ids[count++] = id;
+		}
+
+		@Override
+		public void vertexFinished(int id, int cost) {
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(ids, count);
+		}
+	}
+}
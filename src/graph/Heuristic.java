@@ -0,0 +1,20 @@
+package graph;
+
+/**
+ * <P>An estimate of the cost of the cheapest path from a vertex to
+ * the target of an A* search.</P>
+ * 
+ * <P>For A* to find the lowest cost path, the estimate must never
+ * be larger than the real cost (admissible), and for every edge from
+ * u to v it must hold that estimate(u) &lt;= weight + estimate(v)
+ * (consistent).</P>
+ */
+public interface Heuristic {
+
+	/** Returns a lower bound on the cost of reaching the target.
+	 * 
+	 * @param id vertex the estimate is for
+	 * @return a non-negative lower bound
+	 */
+	public int estimate(int id);
+}
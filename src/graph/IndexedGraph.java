@@ -0,0 +1,70 @@
+package graph;
+
+/**
+ * <P>An IndexedGraph is a directed, weighted graph whose vertices
+ * are also identified by dense integer ids, numbered from 0 to
+ * getVertexCount() - 1.  The graph algorithms work on these ids
+ * directly, so they can run over any representation of a graph
+ * that can answer the questions below.</P>
+ * 
+ * <P>The outgoing edges of a vertex are numbered from 0 to
+ * getDegree(id) - 1.  A representation is allowed to leave some
+ * of these slots empty, in which case getNeighbor returns -1 for
+ * that slot.</P>
+ *
+ * @param <V>
+ */
+public interface IndexedGraph<V> {
+	
+	/** Returns the number of vertices in the graph.
+	 * 
+	 * @return number of vertices
+	 */
+	public int getVertexCount();
+	
+	/** Returns the vertex that has the given id.
+	 * 
+	 * @param id
+	 * @return the vertex with this id
+	 */
+	public V getVertex(int id);
+	
+	/** Returns the id of the given vertex.
+	 * 
+	 * @param vertex
+	 * @return id of the vertex, or -1 if it is not in the graph
+	 */
+	public int getVertexId(V vertex);
+	
+	/** Returns the number of outgoing edge slots of a vertex.
+	 * 
+	 * @param id
+	 * @return number of edge slots
+	 */
+	public int getDegree(int id);
+	
+	/** Returns the id of the vertex at the end of an outgoing edge.
+	 * 
+	 * @param id vertex the edge leads from
+	 * @param index edge slot, from 0 to getDegree(id) - 1
+	 * @return id of the vertex the edge leads to, or -1 if there is
+	 * no edge in this slot
+	 */
+	public int getNeighbor(int id, int index);
+	
+	/** Returns the weight of an outgoing edge.
+	 * 
+	 * @param id vertex the edge leads from
+	 * @param index edge slot, from 0 to getDegree(id) - 1
+	 * @return the (non-negative) weight of the edge
+	 */
+	public int getNeighborWeight(int id, int index);
+	
+	/** Returns the largest weight of any edge in the graph.  A
+	 * graph that does not store its edges may return a bound instead,
+	 * as long as no edge is heavier.
+	 * 
+	 * @return largest edge weight, or 0 if the graph has no edges
+	 */
+	public int getMaxWeight();
+}
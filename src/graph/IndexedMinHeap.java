@@ -0,0 +1,109 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of vertex ids, ordered by an integer key.  The
+ * position of every id in the heap is remembered, so the key of an
+ * id that is already queued can be decreased in O(log n).
+ */
+class IndexedMinHeap extends VertexQueue {
+
+	private int[] heap;
+	private int[] keys;
+	private int[] position;
+	private int size;
+
+	/** Creates an empty heap able to hold ids from 0 to capacity - 1.
+	 * 
+	 * @param capacity
+	 */
+	IndexedMinHeap(int capacity) {
+		heap = new int[capacity];
+		keys = new int[capacity];
+		position = new int[capacity];
+		Arrays.fill(position, -1);
+	}
+
+	@Override
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	boolean contains(int id) {
+		return position[id] >= 0;
+	}
+
+	@Override
+	void insertOrDecrease(int id, int key) {
+		int i = position[id];
+		if (i < 0) {
+			i = size++;
+			heap[i] = id;
+			position[id] = i;
+		} else if (key >= keys[id]) {
+			return;
+		}
+		keys[id] = key;
+		siftUp(i);
+	}
+
+	/** Returns the key of the id at the top of the heap. */
+	int peekKey() {
+		return keys[heap[0]];
+	}
+
+	@Override
+	int poll() {
+		int top = heap[0];
+		position[top] = -1;
+		size--;
+		if (size > 0) {
+			int last = heap[size];
+			heap[0] = last;
+			position[last] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	private void siftUp(int i) {
+		int id = heap[i];
+		int key = keys[id];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			int p = heap[parent];
+			if (keys[p] <= key) {
+				break;
+			}
+			heap[i] = p;
+			position[p] = i;
+			i = parent;
+		}
+		heap[i] = id;
+		position[id] = i;
+	}
+
+	private void siftDown(int i) {
+		int id = heap[i];
+		int key = keys[id];
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			int c = heap[child];
+			int right = child + 1;
+			if (right < size && keys[heap[right]] < keys[c]) {
+				child = right;
+				c = heap[child];
+			}
+			if (key <= keys[c]) {
+				break;
+			}
+			heap[i] = c;
+			position[c] = i;
+			i = child;
+		}
+		heap[i] = id;
+		position[id] = i;
+	}
+}
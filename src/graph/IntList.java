@@ -0,0 +1,39 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * <P>A growable list of ints, used by the parallel searches to collect
+ * the vertices each task found without boxing them.</P>
+ */
+class IntList {
+	private int[] elements = new int[8];
+	private int size;
+
+	int size() {
+		return size;
+	}
+
+	int get(int i) {
+		return elements[i];
+	}
+
+	void add(int value) {
+		if (size == elements.length) {
+			elements = Arrays.copyOf(elements, size * 2);
+		}
+		elements[size++] = value;
+	}
+
+	void addAll(IntList other) {
+		if (size + other.size > elements.length) {
+			elements = Arrays.copyOf(elements, Math.max(size + other.size, size * 2));
+		}
+		System.arraycopy(other.elements, 0, elements, size, other.size);
+		size += other.size;
+	}
+
+	int[] toArray() {
+		return Arrays.copyOf(elements, size);
+	}
+}
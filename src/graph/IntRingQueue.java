@@ -0,0 +1,54 @@
+package graph;
+
+/**
+ * A first-in first-out queue of ints stored in a circular array,
+ * which doubles in size when it fills up.  Clearing the queue keeps
+ * the array, so one queue can be reused for many searches.
+ */
+class IntRingQueue {
+
+	private int[] elements;
+	private int head;
+	private int size;
+
+	/** Creates an empty queue.
+	 * 
+	 * @param capacity initial capacity; rounded up to a power of two
+	 */
+	IntRingQueue(int capacity) {
+		elements = new int[Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1];
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	void clear() {
+		head = 0;
+		size = 0;
+	}
+
+	void add(int value) {
+		if (size == elements.length) {
+			grow();
+		}
+		elements[(head + size) & (elements.length - 1)] = value;
+		size++;
+	}
+
+	int remove() {
+		int value = elements[head];
+		head = (head + 1) & (elements.length - 1);
+		size--;
+		return value;
+	}
+
+	private void grow() {
+		int[] larger = new int[elements.length * 2];
+		int firstPart = elements.length - head;
+		System.arraycopy(elements, head, larger, 0, firstPart);
+		System.arraycopy(elements, 0, larger, firstPart, head);
+		elements = larger;
+		head = 0;
+	}
+}
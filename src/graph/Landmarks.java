@@ -0,0 +1,260 @@
+package graph;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * <P>Precomputed distances to and from a few "landmark" vertices, which
+ * give A* much better estimates than a geometric heuristic on graphs
+ * (such as mazes with many walls) where paths wind a long way around
+ * obstacles.  This is the ALT technique: A*, Landmarks, and the 
+ * Triangle inequality.</P>
+ * 
+ * <P>For a landmark L and any vertices v and t, the triangle inequality
+ * says d(L, t) &lt;= d(L, v) + d(v, t), and d(v, L) &lt;= d(v, t) + d(t, L).
+ * So d(L, t) - d(L, v) and d(v, L) - d(t, L) are both lower bounds on 
+ * d(v, t), and the largest of them over all landmarks is a consistent
+ * heuristic for reaching t.</P>
+ * 
+ * <P>Landmarks work best on the edge of the graph, "behind" the 
+ * vertices they are used for.  The farthest-point selection finds such
+ * vertices by repeatedly taking the vertex farthest from every landmark
+ * chosen so far.</P>
+ * 
+ * <P>The tables only hold for the graph they were computed on; after 
+ * a vertex or an edge is added they may overestimate.</P>
+ */
+public class Landmarks {
+
+	/* Written at the start of a saved table, to recognize one. */
+	private static final int MAGIC = 0x414c5431;
+
+	private final int[] ids;
+	/* from[i][v] is d(landmark i, v) and to[i][v] is d(v, landmark i);
+	 * on a graph with symmetric edges the two are the same arrays.
+	 */
+	private final int[][] from;
+	private final int[][] to;
+
+	private Landmarks(int[] ids, int[][] from, int[][] to) {
+		this.ids = ids;
+		this.from = from;
+		this.to = to;
+	}
+
+	/** Computes the tables for the given landmarks.
+	 * 
+	 * @param forward the graph
+	 * @param backward the same graph with every edge reversed (for a 
+	 * graph whose edges all come in pairs, the graph itself)
+	 * @param landmarks ids of the landmark vertices
+	 * @return the tables
+	 */
+	public static Landmarks at(IndexedGraph<?> forward, IndexedGraph<?> backward, int... landmarks) {
+		int[][] from = new int[landmarks.length][];
+		int[][] to = new int[landmarks.length][];
+		for (int i = 0; i < landmarks.length; i++) {
+			from[i] = distancesFrom(forward, landmarks[i]);
+			to[i] = forward == backward ? from[i] : distancesFrom(backward, landmarks[i]);
+		}
+		return new Landmarks(landmarks.clone(), from, to);
+	}
+
+	/** Chooses landmarks by farthest-point selection and computes their
+	 * tables.  The first landmark is the vertex farthest from "seed";
+	 * each one after that is the vertex whose distance to the nearest
+	 * landmark so far is greatest.  Only vertices reachable from the 
+	 * first landmark are considered.
+	 * 
+	 * @param forward the graph
+	 * @param backward the same graph with every edge reversed
+	 * @param count number of landmarks
+	 * @param seed id of the vertex the selection starts from
+	 * @return the tables
+	 */
+	public static Landmarks farthest(IndexedGraph<?> forward, IndexedGraph<?> backward, int count, 
+			int seed) {
+		if (count < 1) {
+			throw new IllegalArgumentException("at least one landmark is needed");
+		}
+		int n = forward.getVertexCount();
+		int[] ids = new int[count];
+		int[][] from = new int[count][];
+		int[][] to = new int[count][];
+		/* nearest[v]: distance from v's nearest landmark so far */
+		int[] nearest = distancesFrom(forward, seed);
+		int chosen = 0;
+		while (chosen < count) {
+			int best = -1;
+			for (int v = 0; v < n; v++) {
+				if (nearest[v] != ShortestPathTree.UNREACHABLE && (best < 0 || nearest[v] > nearest[best])) {
+					best = v;
+				}
+			}
+			if (best < 0 || (chosen > 0 && nearest[best] == 0)) {
+				/* every reachable vertex is already a landmark */
+				break;
+			}
+			ids[chosen] = best;
+			from[chosen] = distancesFrom(forward, best);
+			to[chosen] = forward == backward ? from[chosen] : distancesFrom(backward, best);
+			if (chosen == 0) {
+				nearest = from[0].clone();
+			} else {
+				for (int v = 0; v < n; v++) {
+					nearest[v] = Math.min(nearest[v], from[chosen][v]);
+				}
+			}
+			chosen++;
+		}
+		if (chosen < count) {
+			int[][] fromKept = new int[chosen][];
+			int[][] toKept = new int[chosen][];
+			System.arraycopy(from, 0, fromKept, 0, chosen);
+			System.arraycopy(to, 0, toKept, 0, chosen);
+			int[] idsKept = new int[chosen];
+			System.arraycopy(ids, 0, idsKept, 0, chosen);
+			return new Landmarks(idsKept, fromKept, toKept);
+		}
+		return new Landmarks(ids, from, to);
+	}
+
+	private static int[] distancesFrom(IndexedGraph<?> graph, int source) {
+		ShortestPathTree tree = ShortestPaths.dijkstra(graph, source);
+		int[] costs = new int[graph.getVertexCount()];
+		for (int v = 0; v < costs.length; v++) {
+			costs[v] = tree.getCost(v);
+		}
+		return costs;
+	}
+
+	/** Returns the number of landmarks. */
+	public int getCount() {
+		return ids.length;
+	}
+
+	/** Returns the vertex id of one of the landmarks.
+	 * 
+	 * @param index from 0 to getCount() - 1
+	 */
+	public int getLandmark(int index) {
+		return ids[index];
+	}
+
+	/** Returns the number of vertices in the graph the tables were
+	 * computed on.
+	 */
+	public int getVertexCount() {
+		return from[0].length;
+	}
+
+	/** Returns the number of bytes used by the tables. */
+	public long getFootprintBytes() {
+		long bytes = 0;
+		for (int i = 0; i < ids.length; i++) {
+			bytes += 4L * from[i].length;
+			if (to[i] != from[i]) {
+				bytes += 4L * to[i].length;
+			}
+		}
+		return bytes;
+	}
+
+	/** Returns the lower bound on the cost of reaching the target from
+	 * each vertex, for use by A*.
+	 * 
+	 * @param target id of the vertex the search is heading for
+	 * @return a consistent heuristic
+	 */
+	public Heuristic heuristicTo(int target) {
+		final int k = ids.length;
+		/* the target's own distances, looked up once per query */
+		final int[] fromTarget = new int[k];
+		final int[] toTarget = new int[k];
+		for (int i = 0; i < k; i++) {
+			toTarget[i] = from[i][target];
+			fromTarget[i] = to[i][target];
+		}
+		return new Heuristic() {
+			@Override
+			public int estimate(int id) {
+				int bound = 0;
+				for (int i = 0; i < k; i++) {
+					int landmarkToV = from[i][id];
+					if (toTarget[i] != ShortestPathTree.UNREACHABLE && landmarkToV != ShortestPathTree.UNREACHABLE) {
+						bound = Math.max(bound, toTarget[i] - landmarkToV);
+					}
+					int vToLandmark = to[i][id];
+					if (vToLandmark != ShortestPathTree.UNREACHABLE && fromTarget[i] != ShortestPathTree.UNREACHABLE) {
+						bound = Math.max(bound, vToLandmark - fromTarget[i]);
+					}
+				}
+				return bound;
+			}
+		};
+	}
+
+	/** Writes the tables, so that they can be read back with read
+	 * instead of being computed again.
+	 * 
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		boolean symmetric = true;
+		for (int i = 0; i < ids.length; i++) {
+			symmetric &= to[i] == from[i];
+		}
+		out.writeInt(MAGIC);
+		out.writeInt(getVertexCount());
+		out.writeInt(ids.length);
+		out.writeBoolean(symmetric);
+		for (int i = 0; i < ids.length; i++) {
+			out.writeInt(ids[i]);
+			writeTable(out, from[i]);
+			if (!symmetric) {
+				writeTable(out, to[i]);
+			}
+		}
+		out.flush();
+	}
+
+	/** Reads tables written by write.
+	 * 
+	 * @param in
+	 * @return the tables
+	 * @throws IOException if the data is not a landmark table
+	 */
+	public static Landmarks read(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("not a landmark table");
+		}
+		int n = in.readInt();
+		int k = in.readInt();
+		boolean symmetric = in.readBoolean();
+		int[] ids = new int[k];
+		int[][] from = new int[k][];
+		int[][] to = new int[k][];
+		for (int i = 0; i < k; i++) {
+			ids[i] = in.readInt();
+			from[i] = readTable(in, n);
+			to[i] = symmetric ? from[i] : readTable(in, n);
+		}
+		return new Landmarks(ids, from, to);
+	}
+
+	private static void writeTable(DataOutputStream out, int[] table) throws IOException {
+		for (int cost : table) {
+			out.writeInt(cost);
+		}
+	}
+
+	private static int[] readTable(DataInputStream in, int n) throws IOException {
+		int[] table = new int[n];
+		for (int v = 0; v < n; v++) {
+			table[v] = in.readInt();
+		}
+		return table;
+	}
+}
@@ -0,0 +1,261 @@
+package graph;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+
+import maze.Juncture;
+
+/**
+ * <P>A graph of Junctures read straight from a snapshot file mapped
+ * into memory.  Opening one reads only the header: there are no Node
+ * or Juncture objects to build, and the algorithms read the edges from
+ * the mapped file as they go, so a large maze graph is ready as soon
+ * as it is opened.  The pages of the file are shared with any other
+ * process that maps it.</P>
+ *
+ * <P>A snapshot is written by write, from a MazeGraph or any other
+ * IndexedGraph of Junctures, in the compressed sparse row form of a
+ * CompactGraph: a 24 byte header (the int MAGIC, the int
+ * FORMAT_VERSION, the vertex count, the edge count, the largest weight,
+ * and the grid width described below), then five sections of
+ * big-endian ints: offsets (vertex count + 1), targets and weights (edge
+ * count each), and the x and y coordinates of each vertex.</P>
+ *
+ * <P>When the vertex ids run row by row, as they do in a MazeGraph
+ * (id = y * width + x), the header records the width, and getVertexId
+ * is a calculation.  Otherwise the ids of the vertices are looked up
+ * in a table built the first time getVertexId is called.</P>
+ */
+public class MappedMazeGraph implements IndexedGraph<Juncture> {
+
+	/** The first four bytes of a snapshot file ("CSR1"). */
+	public static final int MAGIC = 0x43535231;
+
+	/** The version of the snapshot format that write produces. */
+	public static final int FORMAT_VERSION = 1;
+
+	private static final int HEADER_BYTES = 24;
+
+	/* Each section is mapped in segments of 2^SEGMENT_SHIFT ints (1 GB),
+	 * since one buffer can cover at most 2 GB.
+	 */
+	private static final int SEGMENT_SHIFT = 28;
+	private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+	private final int vertexCount;
+	private final int edgeCount;
+	private final int maxWeight;
+	private final int gridWidth;
+	private final IntBuffer[] offsets;
+	private final IntBuffer[] targets;
+	private final IntBuffer[] weights;
+	private final IntBuffer[] xs;
+	private final IntBuffer[] ys;
+
+	/* Built the first time getVertexId is called, if the ids do not run
+	 * row by row. */
+	private volatile HashMap<Juncture, Integer> vertexIds;
+
+	private MappedMazeGraph(FileChannel channel, int vertexCount, int edgeCount, int maxWeight, int gridWidth)
+			throws IOException {
+		this.vertexCount = vertexCount;
+		this.edgeCount = edgeCount;
+		this.maxWeight = maxWeight;
+		this.gridWidth = gridWidth;
+		long position = HEADER_BYTES;
+		offsets = map(channel, position, vertexCount + 1L);
+		position += 4 * (vertexCount + 1L);
+		targets = map(channel, position, edgeCount);
+		position += 4L * edgeCount;
+		weights = map(channel, position, edgeCount);
+		position += 4L * edgeCount;
+		xs = map(channel, position, vertexCount);
+		position += 4L * vertexCount;
+		ys = map(channel, position, vertexCount);
+	}
+
+	/* Maps "count" ints starting "position" bytes into the file. */
+	private static IntBuffer[] map(FileChannel channel, long position, long count) throws IOException {
+		IntBuffer[] segments = new IntBuffer[(int) ((count + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+		for (int s = 0; s < segments.length; s++) {
+			long start = (long) s << SEGMENT_SHIFT;
+			long length = Math.min(1L << SEGMENT_SHIFT, count - start);
+			segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, position + 4 * start, 4 * length).asIntBuffer();
+		}
+		return segments;
+	}
+
+	private static int get(IntBuffer[] segments, int index) {
+		return segments[index >>> SEGMENT_SHIFT].get(index & SEGMENT_MASK);
+	}
+
+	/** Writes a snapshot of a graph of Junctures.  Empty edge slots of
+	 * the graph are left out.
+	 *
+	 * @param graph
+	 * @param out
+	 * @throws IOException
+	 */
+	public static void write(IndexedGraph<Juncture> graph, DataOutputStream out) throws IOException {
+		int n = graph.getVertexCount();
+		int edges = 0;
+		int width = 0;
+		for (int id = 0; id < n; id++) {
+			width = Math.max(width, graph.getVertex(id).getX() + 1);
+			int degree = graph.getDegree(id);
+			for (int i = 0; i < degree; i++) {
+				if (graph.getNeighbor(id, i) >= 0) {
+					edges++;
+				}
+			}
+		}
+		for (int id = 0; id < n && width > 0; id++) {
+			Juncture vertex = graph.getVertex(id);
+			if (vertex.getX() < 0 || (long) vertex.getY() * width + vertex.getX() != id) {
+				width = 0;
+			}
+		}
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(n);
+		out.writeInt(edges);
+		out.writeInt(graph.getMaxWeight());
+		out.writeInt(width);
+		int offset = 0;
+		out.writeInt(offset);
+		for (int id = 0; id < n; id++) {
+			int degree = graph.getDegree(id);
+			for (int i = 0; i < degree; i++) {
+				if (graph.getNeighbor(id, i) >= 0) {
+					offset++;
+				}
+			}
+			out.writeInt(offset);
+		}
+		for (int id = 0; id < n; id++) {
+			int degree = graph.getDegree(id);
+			for (int i = 0; i < degree; i++) {
+				int target = graph.getNeighbor(id, i);
+				if (target >= 0) {
+					out.writeInt(target);
+				}
+			}
+		}
+		for (int id = 0; id < n; id++) {
+			int degree = graph.getDegree(id);
+			for (int i = 0; i < degree; i++) {
+				if (graph.getNeighbor(id, i) >= 0) {
+					out.writeInt(graph.getNeighborWeight(id, i));
+				}
+			}
+		}
+		for (int id = 0; id < n; id++) {
+			out.writeInt(graph.getVertex(id).getX());
+		}
+		for (int id = 0; id < n; id++) {
+			out.writeInt(graph.getVertex(id).getY());
+		}
+	}
+
+	/** Opens a snapshot written by write, by mapping the file into
+	 * memory.  The file must not be changed while the graph is in use.
+	 *
+	 * @param file
+	 * @return the graph
+	 * @throws IOException if the file cannot be read, or is not a
+	 * snapshot in a format this version can read
+	 */
+	public static MappedMazeGraph open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0) {
+					throw new IOException("not a graph snapshot");
+				}
+			}
+			header.flip();
+			if (header.getInt() != MAGIC) {
+				throw new IOException("not a graph snapshot");
+			}
+			int version = header.getInt();
+			if (version != FORMAT_VERSION) {
+				throw new IOException("unsupported graph snapshot version " + version);
+			}
+			int n = header.getInt();
+			int edges = header.getInt();
+			int maxWeight = header.getInt();
+			int width = header.getInt();
+			if (n < 0 || edges < 0) {
+				throw new IOException("bad graph snapshot header");
+			}
+			long size = HEADER_BYTES + 4 * (3L * n + 1 + 2L * edges);
+			if (channel.size() < size) {
+				throw new IOException("graph snapshot is truncated");
+			}
+			return new MappedMazeGraph(channel, n, edges, maxWeight, width);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/** Returns the number of edges in the graph. */
+	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	@Override
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	@Override
+	public Juncture getVertex(int id) {
+		return new Juncture(get(xs, id), get(ys, id));
+	}
+
+	@Override
+	public int getVertexId(Juncture vertex) {
+		if (gridWidth > 0) {
+			int x = vertex.getX();
+			long id = (long) vertex.getY() * gridWidth + x;
+			return x < 0 || x >= gridWidth || id < 0 || id >= vertexCount ? -1 : (int) id;
+		}
+		HashMap<Juncture, Integer> ids = vertexIds;
+		if (ids == null) {
+			ids = new HashMap<Juncture, Integer>();
+			for (int id = 0; id < vertexCount; id++) {
+				ids.put(getVertex(id), id);
+			}
+			vertexIds = ids;
+		}
+		Integer id = ids.get(vertex);
+		return id == null ? -1 : id;
+	}
+
+	@Override
+	public int getDegree(int id) {
+		return get(offsets, id + 1) - get(offsets, id);
+	}
+
+	@Override
+	public int getNeighbor(int id, int index) {
+		return get(targets, get(offsets, id) + index);
+	}
+
+	@Override
+	public int getNeighborWeight(int id, int index) {
+		return get(weights, get(offsets, id) + index);
+	}
+
+	@Override
+	public int getMaxWeight() {
+		return maxWeight;
+	}
+}
@@ -9,6 +9,12 @@ import maze.Maze;
  */
 public class MazeGraph extends WeightedGraph<Juncture> {
 
+	/* Landmark tables used by A*, and the modification count of the
+	 * graph they were computed for (see preprocessLandmarks).
+	 */
+	private Landmarks landmarks;
+	private int landmarksVersion;
+
 	/** 
 	 * <P>Construct the MazeGraph using the "maze" contained
 	 * in the parameter to specify the vertices (Junctures)
@@ -19,7 +25,9 @@ public class MazeGraph extends WeightedGraph<Juncture> {
 	 * convention of (0, 0) being the upper left corner.</P>
 	 * 
 	 * <P>Each juncture in the maze should be added as a
-	 * vertex to this graph.</P>
+	 * vertex to this graph.  They are added row by row, so the
+	 * juncture at (x, y) gets the vertex id y * width + x, the same
+	 * id it has in a MazeGridGraph of the maze.</P>
 	 * 
 	 * <P>For every pair of adjacent junctures (A and B) which
 	 * are not blocked by a wall, two edges should be added:  
@@ -37,14 +45,14 @@ public class MazeGraph extends WeightedGraph<Juncture> {
 	 * adding vertices and edges to this MazeGraph.
 	 */
 	public MazeGraph(Maze maze) {
-		for(int x=0;x<maze.getMazeWidth();x++) {
-			for(int y=0;y<maze.getMazeHeight();y++) {
+		for(int y=0;y<maze.getMazeHeight();y++) {
+			for(int x=0;x<maze.getMazeWidth();x++) {
 				Juncture junc = new Juncture(x,y);
 				this.addVertex(junc);
 			}
 		}
-		for(int x=0;x<maze.getMazeWidth();x++) {
-			for(int y=0;y<maze.getMazeHeight();y++) {
+		for(int y=0;y<maze.getMazeHeight();y++) {
+			for(int x=0;x<maze.getMazeWidth();x++) {
 				Juncture junc = new Juncture(x,y);
 				if(!maze.isWallAbove(junc)) {
 					Juncture junc2 = new Juncture(x,y-1);
@@ -73,4 +81,120 @@ public class MazeGraph extends WeightedGraph<Juncture> {
 			}
 		}
 	}
+
+	/** Every open passage in a maze is added as a pair of edges
+	 * with the same weight, so a MazeGraph is its own reverse graph.
+	 */
+	@Override
+	protected boolean hasSymmetricEdges() {
+		return true;
+	}
+
+	/** Builds a smaller graph of only the dead ends and intersections
+	 * of this maze, joined by one edge per corridor (see CorridorGraph).
+	 * 
+	 * @return the compressed graph, which does not follow later changes
+	 * to this one
+	 */
+	public CorridorGraph<Juncture> compressCorridors() {
+		return new CorridorGraph<Juncture>(this);
+	}
+
+	/** 
+	 * <P>Chooses "count" landmarks by farthest-point selection, starting
+	 * from the juncture at (0, 0), and computes their distance tables, 
+	 * which A* searches on this graph will then use (see DoAStar).  
+	 * This runs Dijkstra's algorithm once per landmark, and the tables
+	 * take count * 4 bytes per juncture.</P>
+	 * 
+	 * @param count number of landmarks
+	 * @return the tables, which can be saved with Landmarks.write
+	 */
+	public Landmarks preprocessLandmarks(int count) {
+		setLandmarks(Landmarks.farthest(this, this, count, 0));
+		return landmarks;
+	}
+
+	/** Use landmark tables computed earlier (for instance, read back
+	 * with Landmarks.read) for the A* searches on this graph.
+	 * 
+	 * @param tables landmarks computed for this maze, or null to stop
+	 * using landmarks
+	 * @throws IllegalArgumentException if the tables are for a graph
+	 * with a different number of junctures
+	 */
+	public void setLandmarks(Landmarks tables) {
+		if (tables != null && tables.getVertexCount() != getVertexCount()) {
+			throw new IllegalArgumentException("landmarks are for a different maze");
+		}
+		landmarks = tables;
+		landmarksVersion = getModificationCount();
+	}
+
+	/** Returns the landmark tables in use, or null if there are none.
+	 * 
+	 * @return landmark tables
+	 */
+	public Landmarks getLandmarks() {
+		return landmarks;
+	}
+
+	/** 
+	 * <P>Perform an A* search from the "start" juncture to the "end"
+	 * juncture (see WeightedGraph.DoAStar).</P>
+	 * 
+	 * <P>The estimate used for each juncture is its Manhattan distance
+	 * to "end" times the smallest edge weight in the maze.  Every step
+	 * through the maze moves one unit and costs at least that weight,
+	 * so the estimate never exceeds the real cost.</P>
+	 * 
+	 * <P>If landmarks have been set up (see preprocessLandmarks), and no
+	 * edge has been added since, the larger of that estimate and the
+	 * landmarks' lower bound is used instead, which is usually far 
+	 * closer to the real cost in a maze with many walls.</P>
+	 * 
+	 * @param start juncture where the search begins
+	 * @param end juncture where the search ends
+	 * @return the lowest cost path, its cost, and the number of 
+	 * junctures added to the finished set
+	 */
+	public SearchResult<Juncture> DoAStar(Juncture start, Juncture end) {
+		return DoAStar(start, end, lowerBoundTo(end));
+	}
+
+	/** Performs the same A* search as DoAStar(Juncture, Juncture), but
+	 * without notifying the observers (see WeightedGraph.queryBFS).
+	 * 
+	 * @param start juncture where the search begins
+	 * @param end juncture where the search ends
+	 * @return the lowest cost path, its cost, and the number of 
+	 * junctures added to the finished set
+	 */
+	public SearchResult<Juncture> queryAStar(Juncture start, Juncture end) {
+		return queryAStar(start, end, lowerBoundTo(end));
+	}
+
+	private Heuristic lowerBoundTo(Juncture end) {
+		final int endX = end.getX();
+		final int endY = end.getY();
+		final int scale = getMinWeight();
+		final Heuristic landmarkBound;
+		int endId = getVertexId(end);
+		if (landmarks != null && landmarksVersion == getModificationCount() && endId >= 0) {
+			landmarkBound = landmarks.heuristicTo(endId);
+		} else {
+			landmarkBound = null;
+		}
+		return new Heuristic() {
+			@Override
+			public int estimate(int id) {
+				Juncture junc = getVertex(id);
+				int manhattan = scale * (Math.abs(junc.getX() - endX) + Math.abs(junc.getY() - endY));
+				if (landmarkBound == null) {
+					return manhattan;
+				}
+				return Math.max(manhattan, landmarkBound.estimate(id));
+			}
+		};
+	}
 }
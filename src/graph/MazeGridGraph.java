@@ -0,0 +1,130 @@
+package graph;
+
+import maze.Juncture;
+import maze.Maze;
+
+/**
+ * <P>A read-only view of a Maze as a graph, which works out the
+ * edges and weights of a juncture from the Maze whenever they are
+ * asked for instead of storing them.  Building the view costs
+ * nothing, and it uses no memory beyond the Maze itself.</P>
+ * 
+ * <P>The juncture at (x, y) has the id y * width + x, which is also
+ * its id in a MazeGraph built from the same maze.  Every juncture
+ * has four edge slots, in the same order that MazeGraph adds its
+ * edges: above, below, right and left.  Slots blocked by a wall
+ * are empty.</P>
+ * 
+ * <P>Since ids are ints, the view can only be built for a maze of
+ * at most Integer.MAX_VALUE junctures, although a mapped Maze can be 
+ * larger.</P>
+ */
+public class MazeGridGraph implements IndexedGraph<Juncture> {
+
+	private final Maze maze;
+	private final int width;
+	private final int height;
+
+	/** Creates a view of the given maze.
+	 * 
+	 * @param maze
+	 * @throws IllegalArgumentException if the maze has more than
+	 * Integer.MAX_VALUE junctures
+	 */
+	public MazeGridGraph(Maze maze) {
+		this.maze = maze;
+		this.width = maze.getMazeWidth();
+		this.height = maze.getMazeHeight();
+		if ((long) width * height > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("maze has too many junctures for int ids");
+		}
+	}
+
+	/** Returns the maze this graph is a view of. */
+	public Maze getMaze() {
+		return maze;
+	}
+
+	/** Returns a heuristic for A* searches that end at the given
+	 * juncture: the Manhattan distance to it times the smallest weight
+	 * a maze can have.
+	 * 
+	 * @param target id of the juncture the search is looking for
+	 * @return the heuristic
+	 */
+	public Heuristic getManhattanHeuristic(int target) {
+		final int targetX = target % width;
+		final int targetY = target / width;
+		return new Heuristic() {
+			@Override
+			public int estimate(int id) {
+				int x = id % width;
+				int y = id / width;
+				return Maze.MIN_WEIGHT * (Math.abs(x - targetX) + Math.abs(y - targetY));
+			}
+		};
+	}
+
+	@Override
+	public int getVertexCount() {
+		return width * height;
+	}
+
+	@Override
+	public Juncture getVertex(int id) {
+		return new Juncture(id % width, id / width);
+	}
+
+	@Override
+	public int getVertexId(Juncture vertex) {
+		int x = vertex.getX();
+		int y = vertex.getY();
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			return -1;
+		}
+		return y * width + x;
+	}
+
+	@Override
+	public int getDegree(int id) {
+		return 4;
+	}
+
+	@Override
+	public int getNeighbor(int id, int index) {
+		int x = id % width;
+		int y = id / width;
+		switch (index) {
+		case 0:
+			return maze.isWallAbove(x, y) ? -1 : id - width;
+		case 1:
+			return maze.isWallBelow(x, y) ? -1 : id + width;
+		case 2:
+			return maze.isWallToRight(x, y) ? -1 : id + 1;
+		default:
+			return maze.isWallToLeft(x, y) ? -1 : id - 1;
+		}
+	}
+
+	@Override
+	public int getNeighborWeight(int id, int index) {
+		int x = id % width;
+		int y = id / width;
+		switch (index) {
+		case 0:
+			return maze.getWeightAbove(x, y);
+		case 1:
+			return maze.getWeightBelow(x, y);
+		case 2:
+			return maze.getWeightToRight(x, y);
+		default:
+			return maze.getWeightToLeft(x, y);
+		}
+	}
+
+	/** Returns Maze.MAX_WEIGHT, the largest weight any maze can have. */
+	@Override
+	public int getMaxWeight() {
+		return Maze.MAX_WEIGHT;
+	}
+}
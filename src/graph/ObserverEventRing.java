@@ -0,0 +1,106 @@
+package graph;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <P>A bounded ring of observer events for exactly one producer thread
+ * (the algorithm) and one consumer thread (the dispatcher).  Each 
+ * event is a primitive record of three ints: its type, a vertex id,
+ * and a cost, stored in parallel arrays so that publishing one neither
+ * allocates nor boxes.</P>
+ * 
+ * <P>The ring is lock-free.  The producer owns the tail and the 
+ * consumer owns the head, and each only reads the other's position
+ * when its cached copy says the ring is full (or empty).  The consumer
+ * publishes the head with an ordered write; the producer publishes the
+ * tail with a volatile write, so that a consumer which checks the ring
+ * after announcing that it is about to park (see 
+ * AsyncObserverDispatcher) cannot miss an event.</P>
+ */
+class ObserverEventRing {
+
+	private final int[] types;
+	private final int[] ids;
+	private final int[] costs;
+	private final int mask;
+
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	/* Producer's last reading of head, and consumer's of tail. */
+	private long cachedHead;
+	private long cachedTail;
+
+	/** Creates an empty ring.
+	 * 
+	 * @param capacity number of events; rounded up to a power of two
+	 */
+	ObserverEventRing(int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		types = new int[size];
+		ids = new int[size];
+		costs = new int[size];
+		mask = size - 1;
+	}
+
+	int capacity() {
+		return mask + 1;
+	}
+
+	/** Called by the producer only.
+	 * 
+	 * @return false if the ring is full
+	 */
+	boolean offer(int type, int id, int cost) {
+		long t = tail.get();
+		if (t - cachedHead > mask) {
+			cachedHead = head.get();
+			if (t - cachedHead > mask) {
+				return false;
+			}
+		}
+		int slot = (int) t & mask;
+		types[slot] = type;
+		ids[slot] = id;
+		costs[slot] = cost;
+		tail.set(t + 1);
+		return true;
+	}
+
+	/** Called by the producer only.
+	 * 
+	 * @return number of free slots
+	 */
+	int remainingCapacity() {
+		cachedHead = head.get();
+		return (int) (capacity() - (tail.get() - cachedHead));
+	}
+
+	/** Called by the consumer only.  Copies up to "max" events into
+	 * the given arrays and frees their slots.
+	 * 
+	 * @return number of events copied
+	 */
+	int drainTo(int[] typeBatch, int[] idBatch, int[] costBatch, int max) {
+		long h = head.get();
+		if (cachedTail - h < max) {
+			cachedTail = tail.get();
+		}
+		int count = (int) Math.min(cachedTail - h, max);
+		for (int i = 0; i < count; i++) {
+			int slot = (int) (h + i) & mask;
+			typeBatch[i] = types[slot];
+			idBatch[i] = ids[slot];
+			costBatch[i] = costs[slot];
+		}
+		if (count > 0) {
+			head.lazySet(h + count);
+		}
+		return count;
+	}
+
+	/** Returns true if the consumer has taken every published event. */
+	boolean isEmpty() {
+		return head.get() == tail.get();
+	}
+}
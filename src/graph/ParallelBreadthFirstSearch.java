@@ -0,0 +1,293 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <P>A level-synchronous breadth-first search that expands each level
+ * in parallel on a ForkJoinPool.  The visited set is a bitset with one
+ * bit per vertex id.</P>
+ * 
+ * <P>Each level is expanded in one of two directions.  Top-down, every
+ * frontier vertex claims its unvisited neighbors; the frontier is then
+ * kept as a list of ids, since it is usually a small part of the graph.
+ * Bottom-up, every unvisited vertex looks for a neighbor in the 
+ * frontier and stops at the first one it finds, which is much cheaper
+ * once the frontier holds a large part of the graph; the frontier is 
+ * then kept as a bitset too.  The search switches to bottom-up when
+ * the edges leaving the frontier outnumber the unexplored edges divided
+ * by ALPHA, and back again when the frontier shrinks below the vertex
+ * count divided by BETA.</P>
+ * 
+ * <P>The result is a ShortestPathTree in which the cost of a vertex is
+ * its level (the number of edges from the source) and its predecessor
+ * is the vertex it was reached from.</P>
+ */
+public class ParallelBreadthFirstSearch {
+
+	static final int ALPHA = 14;
+	static final int BETA = 24;
+
+	/* Amount of work (frontier vertices top-down, bitset words
+	 * bottom-up) below which a task does it itself instead of 
+	 * splitting it further.
+	 */
+	private static final int SPLIT_VERTICES = 1024;
+	private static final int SPLIT_WORDS = 64;
+
+	private final ForkJoinPool pool;
+
+	/** Creates a search that runs on the given pool.
+	 * 
+	 * @param pool
+	 */
+	public ParallelBreadthFirstSearch(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/** Visits every vertex that can be reached from the source.
+	 * 
+	 * @param forward the graph
+	 * @param backward the same graph with every edge reversed (for a 
+	 * graph whose edges all come in pairs, the graph itself); used by
+	 * the bottom-up levels
+	 * @param source id of the vertex where the search begins
+	 * @return level and parent of every vertex
+	 */
+	public ShortestPathTree run(IndexedGraph<?> forward, IndexedGraph<?> backward, int source) {
+		int n = forward.getVertexCount();
+		int words = (n + 63) >>> 6;
+		Search search = new Search(forward, backward, n, words);
+		Arrays.fill(search.levels, ShortestPathTree.UNREACHABLE);
+		Arrays.fill(search.parents, -1);
+		search.levels[source] = 0;
+		search.visited.set(source >>> 6, 1L << source);
+
+		long unexploredEdges = 0;
+		for (int id = 0; id < n; id++) {
+			unexploredEdges += forward.getDegree(id);
+		}
+		int[] frontierList = {source};
+		AtomicLongArray frontierBits = null;
+		long frontierSize = 1;
+		long frontierEdges = forward.getDegree(source);
+		unexploredEdges -= frontierEdges;
+		int reached = 1;
+
+		for (int depth = 0; frontierSize > 0; depth++) {
+			search.depth = depth;
+			if (frontierList != null && frontierEdges > unexploredEdges / ALPHA) {
+				frontierBits = toBits(frontierList, words);
+				frontierList = null;
+			} else if (frontierBits != null && frontierSize < n / BETA) {
+				frontierList = toList(frontierBits, (int) frontierSize);
+				frontierBits = null;
+			}
+			Expanded next;
+			if (frontierList != null) {
+				next = pool.invoke(new TopDown(search, frontierList, 0, frontierList.length));
+				frontierList = next.vertices.toArray();
+			} else {
+				search.frontier = frontierBits;
+				frontierBits = new AtomicLongArray(words);
+				search.next = frontierBits;
+				next = pool.invoke(new BottomUp(search, 0, words));
+			}
+			frontierSize = next.count;
+			frontierEdges = next.edges;
+			unexploredEdges -= frontierEdges;
+			reached += frontierSize;
+		}
+		return new ShortestPathTree(source, search.levels, search.parents, reached);
+	}
+
+	private static AtomicLongArray toBits(int[] ids, int words) {
+		long[] bits = new long[words];
+		for (int id : ids) {
+			bits[id >>> 6] |= 1L << id;
+		}
+		return new AtomicLongArray(bits);
+	}
+
+	private static int[] toList(AtomicLongArray bits, int size) {
+		int[] ids = new int[size];
+		int count = 0;
+		for (int word = 0; word < bits.length(); word++) {
+			long w = bits.get(word);
+			while (w != 0) {
+				ids[count++] = (word << 6) + Long.numberOfTrailingZeros(w);
+				w &= w - 1;
+			}
+		}
+		return ids;
+	}
+
+	/* The state shared by the tasks expanding one level. */
+	private static class Search {
+		final IndexedGraph<?> forward;
+		final IndexedGraph<?> backward;
+		final int n;
+		final int[] levels;
+		final int[] parents;
+		final AtomicLongArray visited;
+		AtomicLongArray frontier;
+		AtomicLongArray next;
+		int depth;
+
+		Search(IndexedGraph<?> forward, IndexedGraph<?> backward, int n, int words) {
+			this.forward = forward;
+			this.backward = backward;
+			this.n = n;
+			levels = new int[n];
+			parents = new int[n];
+			visited = new AtomicLongArray(words);
+		}
+	}
+
+	/* What a task added to the next frontier: how many vertices, the
+	 * sum of their degrees, and (top-down only) which vertices.
+	 */
+	private static class Expanded {
+		long count;
+		long edges;
+		IntList vertices;
+
+		void add(Expanded other) {
+			count += other.count;
+			edges += other.edges;
+			if (vertices != null) {
+				vertices.addAll(other.vertices);
+			}
+		}
+	}
+
+	/* Each frontier vertex in frontier[from .. to - 1] claims its 
+	 * unvisited neighbors.  Neighbors may lie anywhere in the visited
+	 * bitset, so claiming one is a compare-and-set.
+	 */
+	private static class TopDown extends RecursiveTask<Expanded> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Search search;
+		private final int[] frontier;
+		private final int from;
+		private final int to;
+
+		TopDown(Search search, int[] frontier, int from, int to) {
+			this.search = search;
+			this.frontier = frontier;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Expanded compute() {
+			if (to - from > SPLIT_VERTICES) {
+				int middle = (from + to) >>> 1;
+				TopDown left = new TopDown(search, frontier, from, middle);
+				left.fork();
+				Expanded right = new TopDown(search, frontier, middle, to).compute();
+				Expanded result = left.join();
+				result.add(right);
+				return result;
+			}
+			Expanded result = new Expanded();
+			result.vertices = new IntList();
+			IndexedGraph<?> graph = search.forward;
+			AtomicLongArray visited = search.visited;
+			int nextDepth = search.depth + 1;
+			for (int i = from; i < to; i++) {
+				int node = frontier[i];
+				int degree = graph.getDegree(node);
+				for (int e = 0; e < degree; e++) {
+					int v = graph.getNeighbor(node, e);
+					if (v < 0) {
+						continue;
+					}
+					int word = v >>> 6;
+					long mask = 1L << v;
+					long old = visited.get(word);
+					while ((old & mask) == 0) {
+						if (visited.compareAndSet(word, old, old | mask)) {
+							search.levels[v] = nextDepth;
+							search.parents[v] = node;
+							result.vertices.add(v);
+							result.count++;
+							result.edges += graph.getDegree(v);
+							break;
+						}
+						old = visited.get(word);
+					}
+				}
+			}
+			return result;
+		}
+	}
+
+	/* Each unvisited vertex in bitset words [from, to) looks for a
+	 * parent in the frontier.  Only this task writes to these words,
+	 * so no compare-and-set is needed.
+	 */
+	private static class BottomUp extends RecursiveTask<Expanded> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Search search;
+		private final int from;
+		private final int to;
+
+		BottomUp(Search search, int from, int to) {
+			this.search = search;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Expanded compute() {
+			if (to - from > SPLIT_WORDS) {
+				int middle = (from + to) >>> 1;
+				BottomUp left = new BottomUp(search, from, middle);
+				left.fork();
+				Expanded right = new BottomUp(search, middle, to).compute();
+				Expanded result = left.join();
+				result.add(right);
+				return result;
+			}
+			Expanded result = new Expanded();
+			IndexedGraph<?> graph = search.backward;
+			AtomicLongArray frontier = search.frontier;
+			int nextDepth = search.depth + 1;
+			for (int word = from; word < to; word++) {
+				long unvisited = ~search.visited.get(word);
+				long found = 0;
+				while (unvisited != 0) {
+					int v = (word << 6) + Long.numberOfTrailingZeros(unvisited);
+					unvisited &= unvisited - 1;
+					if (v >= search.n) {
+						break;
+					}
+					int degree = graph.getDegree(v);
+					for (int e = 0; e < degree; e++) {
+						int u = graph.getNeighbor(v, e);
+						if (u >= 0 && (frontier.get(u >>> 6) & (1L << u)) != 0) {
+							search.levels[v] = nextDepth;
+							search.parents[v] = u;
+							found |= 1L << v;
+							result.count++;
+							result.edges += search.forward.getDegree(v);
+							break;
+						}
+					}
+				}
+				if (found != 0) {
+					search.visited.set(word, search.visited.get(word) | found);
+					search.next.set(word, found);
+				}
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * <P>Answers point-to-point path queries on a graph that no longer
+ * changes, such as a CompactGraph from WeightedGraph.freeze or a
+ * MazeGridGraph, from any number of threads at once.</P>
+ * 
+ * <P>A query needs arrays as large as the graph (costs, parents, and 
+ * the marks that say which of those entries belong to it).  Instead of
+ * allocating and clearing them for every query, the engine keeps a 
+ * pool of SearchScratch objects; a query borrows one, and gives it
+ * back when it is done, so there are never more of them than queries
+ * running at the same moment.  The marks are epoch stamps: each query takes the
+ * next epoch number, and an entry counts only if its stamp matches, so
+ * nothing has to be cleared between queries.  The pool (rather than a
+ * ThreadLocal) keeps this cheap on virtual threads, where each query
+ * may run on a thread that has never run one before.</P>
+ */
+public class QueryEngine<V> {
+
+	private final IndexedGraph<V> graph;
+	private final ConcurrentLinkedQueue<SearchScratch> idle;
+
+	/** Creates an engine for the given graph, which must not be
+	 * changed while the engine is in use.
+	 * 
+	 * @param graph
+	 */
+	public QueryEngine(IndexedGraph<V> graph) {
+		this.graph = graph;
+		idle = new ConcurrentLinkedQueue<SearchScratch>();
+	}
+
+	/** Finds the lowest cost path with Dijkstra's algorithm, stopping
+	 * as soon as the end has been added to the finished set.
+	 * 
+	 * @param start vertex where the path begins
+	 * @param end vertex where the path ends
+	 * @return the path, its cost, and the number of vertices finished
+	 */
+	public SearchResult<V> shortestPath(V start, V end) {
+		return shortestPath(graph.getVertexId(start), graph.getVertexId(end));
+	}
+
+	/** Finds the lowest cost path between two vertex ids.
+	 * 
+	 * @param source id of the vertex where the path begins
+	 * @param target id of the vertex where the path ends
+	 * @return the path, its cost, and the number of vertices finished
+	 */
+	public SearchResult<V> shortestPath(int source, int target) {
+		long begin = System.nanoTime();
+		if (source < 0 || target < 0) {
+			return notFound(0, begin);
+		}
+		SearchScratch scratch = borrow();
+		try {
+			int epoch = scratch.begin();
+			int[] costs = scratch.costs;
+			int[] parents = scratch.parents;
+			int[] reached = scratch.reached;
+			int[] finished = scratch.finished;
+			reached[source] = epoch;
+			costs[source] = 0;
+			parents[source] = -1;
+			scratch.push(0, source);
+			int settled = 0;
+			while (scratch.heapSize > 0) {
+				long top = scratch.pop();
+				int node = (int) top;
+				if (finished[node] == epoch) {
+					continue;
+				}
+				finished[node] = epoch;
+				settled++;
+				if (node == target) {
+					return found(scratch, target, costs[target], settled, begin);
+				}
+				int cost = costs[node];
+				int degree = graph.getDegree(node);
+				for (int i = 0; i < degree; i++) {
+					int next = graph.getNeighbor(node, i);
+					if (next < 0 || finished[next] == epoch) {
+						continue;
+					}
+					int candidate = cost + graph.getNeighborWeight(node, i);
+					if (reached[next] != epoch || candidate < costs[next]) {
+						reached[next] = epoch;
+						costs[next] = candidate;
+						parents[next] = node;
+						scratch.push(candidate, next);
+					}
+				}
+			}
+			return notFound(settled, begin);
+		} finally {
+			idle.add(scratch);
+		}
+	}
+
+	/** Finds a path with the fewest edges with a breadth-first search,
+	 * stopping as soon as the end is reached.
+	 * 
+	 * @param start vertex where the path begins
+	 * @param end vertex where the path ends
+	 * @return the path, its cost, and the number of vertices visited
+	 */
+	public SearchResult<V> fewestEdges(V start, V end) {
+		return fewestEdges(graph.getVertexId(start), graph.getVertexId(end));
+	}
+
+	/** Finds a path with the fewest edges between two vertex ids.
+	 * 
+	 * @param source id of the vertex where the path begins
+	 * @param target id of the vertex where the path ends
+	 * @return the path, its cost, and the number of vertices visited
+	 */
+	public SearchResult<V> fewestEdges(int source, int target) {
+		long begin = System.nanoTime();
+		if (source < 0 || target < 0) {
+			return notFound(0, begin);
+		}
+		SearchScratch scratch = borrow();
+		try {
+			int epoch = scratch.begin();
+			int[] costs = scratch.costs;
+			int[] parents = scratch.parents;
+			int[] reached = scratch.reached;
+			/* the queue is the heap's array, used as a plain list of ids */
+			long[] queue = scratch.heap;
+			int head = 0;
+			int tail = 0;
+			reached[source] = epoch;
+			costs[source] = 0;
+			parents[source] = -1;
+			queue[tail++] = source;
+			while (head < tail) {
+				int node = (int) queue[head++];
+				if (node == target) {
+					return found(scratch, target, costs[target], head, begin);
+				}
+				int degree = graph.getDegree(node);
+				for (int i = 0; i < degree; i++) {
+					int next = graph.getNeighbor(node, i);
+					if (next >= 0 && reached[next] != epoch) {
+						reached[next] = epoch;
+						costs[next] = costs[node] + graph.getNeighborWeight(node, i);
+						parents[next] = node;
+						queue[tail++] = next;
+					}
+				}
+			}
+			return notFound(head, begin);
+		} finally {
+			idle.add(scratch);
+		}
+	}
+
+	private SearchScratch borrow() {
+		SearchScratch scratch = idle.poll();
+		if (scratch == null) {
+			scratch = new SearchScratch(graph.getVertexCount());
+		}
+		return scratch;
+	}
+
+	private SearchResult<V> found(SearchScratch scratch, int target, int cost, int visited, long begin) {
+		int length = 0;
+		for (int v = target; v != -1; v = scratch.parents[v]) {
+			length++;
+		}
+		int[] ids = new int[length];
+		for (int v = target; v != -1; v = scratch.parents[v]) {
+			ids[--length] = v;
+		}
+		ArrayList<V> path = new ArrayList<V>(ids.length);
+		for (int id : ids) {
+			path.add(graph.getVertex(id));
+		}
+		return new SearchResult<V>(ids, path, cost, visited, System.nanoTime() - begin);
+	}
+
+	private SearchResult<V> notFound(int visited, long begin) {
+		return new SearchResult<V>(new int[0], new ArrayList<V>(), ShortestPathTree.UNREACHABLE, 
+				visited, System.nanoTime() - begin);
+	}
+}
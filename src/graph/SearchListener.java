@@ -0,0 +1,46 @@
+package graph;
+
+/**
+ * Receives progress reports from the graph algorithms, in terms
+ * of vertex ids.  WeightedGraph translates these into calls on its
+ * GraphAlgorithmObservers.
+ */
+interface SearchListener {
+
+	/** Called when a vertex is visited during a breadth-first or
+	 * depth-first search.
+	 * 
+	 * @param id vertex being visited
+	 */
+	void vertexVisited(int id);
+
+	/** Called when a vertex is added to the finished set of a
+	 * shortest path search.
+	 * 
+	 * @param id vertex that was finished
+	 * @param cost cost of the best path from the start to this vertex
+	 */
+	void vertexFinished(int id, int cost);
+
+	/** Called when one of the two frontiers of a bidirectional 
+	 * breadth-first search visits a vertex.
+	 * 
+	 * @param id vertex being visited
+	 * @param forward true for the frontier growing from the start
+	 */
+	default void frontierVisited(int id, boolean forward) {
+		vertexVisited(id);
+	}
+
+	/** Called when one of the two searches of a bidirectional 
+	 * Dijkstra search finishes a vertex.
+	 * 
+	 * @param id vertex that was finished
+	 * @param cost cost of the best path between this vertex and the
+	 * end that search began from
+	 * @param forward true for the search from the start
+	 */
+	default void frontierFinished(int id, int cost, boolean forward) {
+		vertexFinished(id, cost);
+	}
+}
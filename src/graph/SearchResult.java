@@ -0,0 +1,75 @@
+package graph;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <P>What one of the WeightedGraph algorithms found: the path from the
+ * "start" vertex to the "end" vertex, its cost, and how many vertices
+ * the algorithm visited (or added to its finished set) on the way.</P>
+ * 
+ * <P>A SearchResult cannot be changed once it has been created, so it
+ * can be handed from one thread to another freely.</P>
+ */
+public class SearchResult<V> {
+
+	private final int[] pathIds;
+	private final List<V> path;
+	private final int cost;
+	private final int visitedCount;
+	private final long elapsedNanos;
+
+	SearchResult(int[] pathIds, List<V> path, int cost, int visitedCount, long elapsedNanos) {
+		this.pathIds = pathIds;
+		this.path = Collections.unmodifiableList(path);
+		this.cost = cost;
+		this.visitedCount = visitedCount;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/** Returns the vertices along the path, beginning with the start
+	 * vertex and ending with the end vertex.  For Dijkstra's algorithm
+	 * and A* this is the lowest cost path; for a breadth-first search, 
+	 * a path with the fewest edges; for a depth-first search, whichever 
+	 * path the search happened to find.
+	 * 
+	 * @return the path, or an empty list if none was found
+	 */
+	public List<V> getPath() {
+		return path;
+	}
+
+	/** Returns the vertex ids (see IndexedGraph) along the path.
+	 * 
+	 * @return a copy of the ids, or an empty array if no path was found
+	 */
+	public int[] getPathIds() {
+		return pathIds.clone();
+	}
+
+	/** Returns true if a path from start to end was found. */
+	public boolean isPathFound() {
+		return !path.isEmpty();
+	}
+
+	/** Returns the total weight of the edges along the path.
+	 * 
+	 * @return cost of the path, or ShortestPathTree.UNREACHABLE if no
+	 * path was found
+	 */
+	public int getCost() {
+		return cost;
+	}
+
+	/** Returns the number of vertices the algorithm visited, or for
+	 * Dijkstra's algorithm and A*, added to the finished set.
+	 */
+	public int getVisitedCount() {
+		return visitedCount;
+	}
+
+	/** Returns how long the algorithm took, in nanoseconds. */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+}
@@ -0,0 +1,105 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * <P>The arrays one shortest path query needs, kept so that they can
+ * be reused by the next query instead of being allocated and cleared
+ * again.  QueryEngine and ContractionHierarchy keep pools of them.</P>
+ * 
+ * <P>"reached" and "finished" hold the epoch of the last query that 
+ * reached (or finished) each vertex; costs and parents are only
+ * meaningful where "reached" is current.  The heap holds 
+ * (cost &lt;&lt; 32 | id) entries; an entry left behind when a cost was
+ * lowered is skipped once its vertex has been finished.</P>
+ */
+class SearchScratch {
+	final int[] costs;
+	final int[] parents;
+	final int[] reached;
+	final int[] finished;
+	long[] heap;
+	int heapSize;
+	int epoch;
+
+	SearchScratch(int n) {
+		costs = new int[n];
+		parents = new int[n];
+		reached = new int[n];
+		finished = new int[n];
+		heap = new long[Math.max(n, 16)];
+	}
+
+	/* Starts a query, returning its epoch. */
+	int begin() {
+		epoch++;
+		if (epoch == 0) {
+			/* after 2^32 queries the stamps start to repeat */
+			Arrays.fill(reached, 0);
+			Arrays.fill(finished, 0);
+			epoch = 1;
+		}
+		heapSize = 0;
+		return epoch;
+	}
+
+	/* Reaches a vertex for the first time or by a cheaper path, and
+	 * queues it.
+	 */
+	void reach(int id, int cost, int parent) {
+		reached[id] = epoch;
+		costs[id] = cost;
+		parents[id] = parent;
+		push(cost, id);
+	}
+
+	boolean isReached(int id) {
+		return reached[id] == epoch;
+	}
+
+	boolean isFinished(int id) {
+		return finished[id] == epoch;
+	}
+
+	/* Smallest cost in the heap; the heap must not be empty. */
+	int peekCost() {
+		return (int) (heap[0] >>> 32);
+	}
+
+	void push(int cost, int id) {
+		if (heapSize == heap.length) {
+			heap = Arrays.copyOf(heap, heapSize * 2);
+		}
+		long entry = ((long) cost << 32) | id;
+		int i = heapSize++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (heap[parent] <= entry) {
+				break;
+			}
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = entry;
+	}
+
+	long pop() {
+		long top = heap[0];
+		long last = heap[--heapSize];
+		int i = 0;
+		int half = heapSize >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+				child++;
+			}
+			if (last <= heap[child]) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = last;
+		return top;
+	}
+}
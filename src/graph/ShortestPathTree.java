@@ -0,0 +1,88 @@
+package graph;
+
+/**
+ * <P>The result of a single-source shortest path search: for every
+ * vertex id, the cost of the best path from the source and the
+ * vertex that comes just before it on that path.</P>
+ * 
+ * <P>Vertices that cannot be reached have a cost of
+ * Integer.MAX_VALUE and no predecessor (-1).</P>
+ */
+public class ShortestPathTree {
+
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private final int source;
+	private final int[] costs;
+	private final int[] predecessors;
+	private final int settledCount;
+
+	ShortestPathTree(int source, int[] costs, int[] predecessors, int settledCount) {
+		this.source = source;
+		this.costs = costs;
+		this.predecessors = predecessors;
+		this.settledCount = settledCount;
+	}
+
+	/** Returns the id of the vertex the search started from. */
+	public int getSource() {
+		return source;
+	}
+
+	/** Returns the cost of the best path from the source to a vertex.
+	 * 
+	 * @param id
+	 * @return cost of the path, or UNREACHABLE
+	 */
+	public int getCost(int id) {
+		return costs[id];
+	}
+
+	/** Returns the vertex just before the given one on its best path.
+	 * 
+	 * @param id
+	 * @return id of the predecessor, or -1 for the source and for
+	 * vertices that cannot be reached
+	 */
+	public int getPredecessor(int id) {
+		return predecessors[id];
+	}
+
+	/** Returns the number of vertices the search added to its
+	 * finished set.
+	 */
+	public int getSettledCount() {
+		return settledCount;
+	}
+
+	/** Returns the number of bytes used by the arrays of this tree. */
+	public long getFootprintBytes() {
+		return 4L * (costs.length + predecessors.length);
+	}
+
+	/** Returns true if there is a path from the source to the vertex. */
+	public boolean isReachable(int id) {
+		return costs[id] != UNREACHABLE;
+	}
+
+	/** Returns the ids along the best path from the source to a vertex,
+	 * starting with the source and ending with the given vertex.
+	 * 
+	 * @param id
+	 * @return ids along the path, or null if the vertex cannot be reached
+	 */
+	public int[] getPathTo(int id) {
+		if (!isReachable(id)) {
+			return null;
+		}
+		int length = 1;
+		for (int step = id; predecessors[step] != -1; step = predecessors[step]) {
+			length++;
+		}
+		int[] path = new int[length];
+		for (int step = id; step != -1; step = predecessors[step]) {
+			path[--length] = step;
+		}
+		return path;
+	}
+}
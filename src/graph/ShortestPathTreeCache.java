@@ -0,0 +1,137 @@
+package graph;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <P>Keeps the complete shortest path trees computed by Dijkstra's
+ * algorithm, keyed by the id of their source, so that a later query
+ * from the same source is answered by following predecessors from the
+ * end back to the source instead of running the algorithm again.</P>
+ * 
+ * <P>The cache holds at most a given number of bytes of trees (as 
+ * counted by ShortestPathTree.getFootprintBytes); when adding a tree 
+ * would go over that limit, the trees used least recently are evicted
+ * first.  Every tree belongs to one version of the graph, and the whole
+ * cache is emptied as soon as it is asked about a newer version.</P>
+ * 
+ * <P>All methods are synchronized, so the cache may be shared by 
+ * threads running queries at the same time.  Two threads that miss on
+ * the same source both compute its tree; the second simply replaces 
+ * the first.</P>
+ */
+public class ShortestPathTreeCache {
+
+	private final long maxBytes;
+	private final LinkedHashMap<Integer, ShortestPathTree> trees;
+	private long bytes;
+	private int version;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+
+	/** Creates an empty cache.
+	 * 
+	 * @param maxBytes largest total footprint of the trees it may hold
+	 */
+	ShortestPathTreeCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+		/* access order, so that iteration starts at the least recently
+		 * used tree */
+		trees = new LinkedHashMap<Integer, ShortestPathTree>(16, 0.75f, true);
+	}
+
+	/** Returns the tree from the given source, or null if it is not in
+	 * the cache.
+	 * 
+	 * @param source
+	 * @param graphVersion version of the graph the caller is looking at
+	 */
+	synchronized ShortestPathTree get(int source, int graphVersion) {
+		checkVersion(graphVersion);
+		ShortestPathTree tree = trees.get(source);
+		if (tree == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return tree;
+	}
+
+	/** Adds a complete tree, evicting others if need be.  A tree that 
+	 * is larger than the whole cache is not kept.
+	 * 
+	 * @param tree
+	 * @param graphVersion version of the graph the tree was computed on
+	 */
+	synchronized void put(ShortestPathTree tree, int graphVersion) {
+		checkVersion(graphVersion);
+		long size = tree.getFootprintBytes();
+		if (size > maxBytes) {
+			return;
+		}
+		ShortestPathTree old = trees.put(tree.getSource(), tree);
+		if (old != null) {
+			bytes -= old.getFootprintBytes();
+		}
+		bytes += size;
+		Iterator<Map.Entry<Integer, ShortestPathTree>> eldest = trees.entrySet().iterator();
+		while (bytes > maxBytes) {
+			ShortestPathTree evicted = eldest.next().getValue();
+			eldest.remove();
+			bytes -= evicted.getFootprintBytes();
+			evictions++;
+		}
+	}
+
+	private void checkVersion(int graphVersion) {
+		if (graphVersion != version) {
+			if (!trees.isEmpty()) {
+				invalidations++;
+			}
+			trees.clear();
+			bytes = 0;
+			version = graphVersion;
+		}
+	}
+
+	/** Returns the largest total footprint the cache may hold. */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/** Returns the total footprint of the trees held now. */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/** Returns the number of trees held now. */
+	public synchronized int getTreeCount() {
+		return trees.size();
+	}
+
+	/** Returns the number of lookups that found their tree. */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/** Returns the number of lookups that did not find their tree. */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/** Returns the number of trees evicted to stay within the limit. */
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	/** Returns the number of times the cache was emptied because the
+	 * graph had changed.
+	 */
+	public synchronized long getInvalidationCount() {
+		return invalidations;
+	}
+}
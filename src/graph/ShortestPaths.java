@@ -0,0 +1,247 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * <P>Single-source shortest path algorithms that work on the vertex
+ * ids of an IndexedGraph.</P>
+ * 
+ * <P>Every vertex is added to the finished set exactly once, in order
+ * of non-decreasing cost, and the optional SearchListener is told about
+ * each one as it happens.</P>
+ */
+public class ShortestPaths {
+
+	/** Largest edge weight for which DijkstraMode.AUTOMATIC chooses
+	 * the bucket queue.
+	 */
+	public static final int BUCKET_QUEUE_MAX_WEIGHT = 256;
+
+	private ShortestPaths() {
+	}
+
+	/** Runs Dijkstra's algorithm from the source until every reachable
+	 * vertex is finished.
+	 * 
+	 * @param graph
+	 * @param source id of the vertex where the search begins
+	 * @return costs and predecessors of every vertex
+	 */
+	public static ShortestPathTree dijkstra(IndexedGraph<?> graph, int source) {
+		return dijkstra(graph, source, DijkstraMode.AUTOMATIC, null);
+	}
+
+	/** Runs Dijkstra's algorithm from the source until every reachable
+	 * vertex is finished, using the given kind of priority queue.
+	 * 
+	 * @param graph
+	 * @param source id of the vertex where the search begins
+	 * @param mode
+	 * @return costs and predecessors of every vertex
+	 */
+	public static ShortestPathTree dijkstra(IndexedGraph<?> graph, int source, DijkstraMode mode) {
+		return dijkstra(graph, source, mode, null);
+	}
+
+	/* Creates the priority queue asked for by the mode.  The bucket
+	 * queue holds one bucket per possible weight, so AUTOMATIC only
+	 * picks it when the weights are small.
+	 */
+	static VertexQueue createQueue(IndexedGraph<?> graph, DijkstraMode mode) {
+		int maxWeight = graph.getMaxWeight();
+		if (mode == DijkstraMode.BUCKET_QUEUE
+				|| (mode == DijkstraMode.AUTOMATIC && maxWeight <= BUCKET_QUEUE_MAX_WEIGHT)) {
+			return new BucketQueue(graph.getVertexCount(), maxWeight);
+		}
+		return new IndexedMinHeap(graph.getVertexCount());
+	}
+
+	/* Dijkstra's algorithm.  With either queue, choosing the next
+	 * vertex and lowering a tentative cost avoid any scan over the 
+	 * unfinished vertices. 
+	 */
+	static ShortestPathTree dijkstra(IndexedGraph<?> graph, int source, DijkstraMode mode, 
+			SearchListener listener) {
+		int n = graph.getVertexCount();
+		int[] costs = new int[n];
+		int[] predecessors = new int[n];
+		boolean[] finished = new boolean[n];
+		Arrays.fill(costs, ShortestPathTree.UNREACHABLE);
+		Arrays.fill(predecessors, -1);
+		VertexQueue queue = createQueue(graph, mode);
+		int settled = 0;
+
+		costs[source] = 0;
+		queue.insertOrDecrease(source, 0);
+		while (!queue.isEmpty()) {
+			int node = queue.poll();
+			finished[node] = true;
+			settled++;
+			int cost = costs[node];
+			if (listener != null) {
+				listener.vertexFinished(node, cost);
+			}
+			int degree = graph.getDegree(node);
+			for (int i = 0; i < degree; i++) {
+				int target = graph.getNeighbor(node, i);
+				if (target < 0 || finished[target]) {
+					continue;
+				}
+				int candidate = cost + graph.getNeighborWeight(node, i);
+				if (candidate < costs[target]) {
+					costs[target] = candidate;
+					predecessors[target] = node;
+					queue.insertOrDecrease(target, candidate);
+				}
+			}
+		}
+		return new ShortestPathTree(source, costs, predecessors, settled);
+	}
+
+	/** Runs the A* search from the source, stopping as soon as the
+	 * target is finished.  Only the vertices that were finished have
+	 * their final cost in the returned tree.
+	 * 
+	 * @param graph
+	 * @param source id of the vertex where the search begins
+	 * @param target id of the vertex the search is looking for
+	 * @param heuristic a consistent lower bound on the cost to the target
+	 * @return costs and predecessors of the finished vertices
+	 */
+	public static ShortestPathTree aStar(IndexedGraph<?> graph, int source, int target, 
+			Heuristic heuristic) {
+		return aStar(graph, source, target, heuristic, null);
+	}
+
+	/* A* search: like Dijkstra's algorithm, but the queue is ordered 
+	 * by cost plus the estimate to the target, which steers the search
+	 * towards the target.  Since the heuristic is consistent, each
+	 * vertex still only needs to be finished once.
+	 */
+	static ShortestPathTree aStar(IndexedGraph<?> graph, int source, int target, 
+			Heuristic heuristic, SearchListener listener) {
+		int n = graph.getVertexCount();
+		int[] costs = new int[n];
+		int[] predecessors = new int[n];
+		boolean[] finished = new boolean[n];
+		Arrays.fill(costs, ShortestPathTree.UNREACHABLE);
+		Arrays.fill(predecessors, -1);
+		IndexedMinHeap queue = new IndexedMinHeap(n);
+		int settled = 0;
+
+		costs[source] = 0;
+		queue.insertOrDecrease(source, heuristic.estimate(source));
+		while (!queue.isEmpty()) {
+			int node = queue.poll();
+			finished[node] = true;
+			settled++;
+			int cost = costs[node];
+			if (listener != null) {
+				listener.vertexFinished(node, cost);
+			}
+			if (node == target) {
+				break;
+			}
+			int degree = graph.getDegree(node);
+			for (int i = 0; i < degree; i++) {
+				int next = graph.getNeighbor(node, i);
+				if (next < 0 || finished[next]) {
+					continue;
+				}
+				int candidate = cost + graph.getNeighborWeight(node, i);
+				if (candidate < costs[next]) {
+					costs[next] = candidate;
+					predecessors[next] = node;
+					queue.insertOrDecrease(next, candidate + heuristic.estimate(next));
+				}
+			}
+		}
+		return new ShortestPathTree(source, costs, predecessors, settled);
+	}
+
+	/** Runs Dijkstra's algorithm from both ends of a query at once,
+	 * stopping as soon as the lowest cost path between them is known.
+	 * 
+	 * @param forward the graph
+	 * @param backward the same graph with every edge reversed (for a 
+	 * graph whose edges all come in pairs, the graph itself)
+	 * @param source id of the vertex where the path begins
+	 * @param target id of the vertex where the path ends
+	 * @return ids along the lowest cost path, or null if there is none
+	 */
+	public static int[] bidirectionalDijkstra(IndexedGraph<?> forward, IndexedGraph<?> backward, 
+			int source, int target) {
+		return bidirectionalDijkstra(forward, backward, source, target, null);
+	}
+
+	/* Each step finishes one vertex on the side whose queue has the
+	 * smaller key.  "best" is the cheapest path seen so far through a
+	 * vertex reached by both searches.  Once the two smallest keys 
+	 * add up to at least "best", no cheaper path can be found, because
+	 * it would have to pass through a vertex finished by neither side.
+	 */
+	static int[] bidirectionalDijkstra(IndexedGraph<?> forward, IndexedGraph<?> backward, 
+			int source, int target, SearchListener listener) {
+		int n = forward.getVertexCount();
+		int[] sourceCosts = new int[n];
+		int[] targetCosts = new int[n];
+		int[] sourceParent = new int[n];
+		int[] targetParent = new int[n];
+		boolean[] sourceFinished = new boolean[n];
+		boolean[] targetFinished = new boolean[n];
+		Arrays.fill(sourceCosts, ShortestPathTree.UNREACHABLE);
+		Arrays.fill(targetCosts, ShortestPathTree.UNREACHABLE);
+		Arrays.fill(sourceParent, -1);
+		Arrays.fill(targetParent, -1);
+		IndexedMinHeap sourceQueue = new IndexedMinHeap(n);
+		IndexedMinHeap targetQueue = new IndexedMinHeap(n);
+		sourceCosts[source] = 0;
+		targetCosts[target] = 0;
+		sourceQueue.insertOrDecrease(source, 0);
+		targetQueue.insertOrDecrease(target, 0);
+		long best = source == target ? 0 : Long.MAX_VALUE;
+		int meeting = source == target ? source : -1;
+
+		while (!sourceQueue.isEmpty() && !targetQueue.isEmpty()) {
+			if ((long) sourceQueue.peekKey() + targetQueue.peekKey() >= best) {
+				break;
+			}
+			boolean fromSource = sourceQueue.peekKey() <= targetQueue.peekKey();
+			IndexedGraph<?> graph = fromSource ? forward : backward;
+			IndexedMinHeap queue = fromSource ? sourceQueue : targetQueue;
+			int[] costs = fromSource ? sourceCosts : targetCosts;
+			int[] parent = fromSource ? sourceParent : targetParent;
+			boolean[] finished = fromSource ? sourceFinished : targetFinished;
+			int[] otherCosts = fromSource ? targetCosts : sourceCosts;
+
+			int node = queue.poll();
+			finished[node] = true;
+			int cost = costs[node];
+			if (listener != null) {
+				listener.frontierFinished(node, cost, fromSource);
+			}
+			int degree = graph.getDegree(node);
+			for (int i = 0; i < degree; i++) {
+				int next = graph.getNeighbor(node, i);
+				if (next < 0 || finished[next]) {
+					continue;
+				}
+				int candidate = cost + graph.getNeighborWeight(node, i);
+				if (candidate < costs[next]) {
+					costs[next] = candidate;
+					parent[next] = node;
+					queue.insertOrDecrease(next, candidate);
+				}
+				if (otherCosts[next] != ShortestPathTree.UNREACHABLE 
+						&& (long) costs[next] + otherCosts[next] < best) {
+					best = (long) costs[next] + otherCosts[next];
+					meeting = next;
+				}
+			}
+		}
+		if (meeting < 0) {
+			return null;
+		}
+		return GraphSearch.joinPaths(sourceParent, meeting, targetParent, targetParent[meeting]);
+	}
+}
@@ -0,0 +1,21 @@
+package graph;
+
+/**
+ * A priority queue of vertex ids, used by the shortest path algorithms
+ * to pick the unfinished vertex with the lowest tentative cost.
+ */
+abstract class VertexQueue {
+
+	abstract boolean isEmpty();
+
+	/** Queues the id with the given key, or lowers its key if it is
+	 * already queued with a larger one.
+	 * 
+	 * @param id
+	 * @param key
+	 */
+	abstract void insertOrDecrease(int id, int key);
+
+	/** Removes and returns an id with the smallest key. */
+	abstract int poll();
+}
@@ -1,11 +1,12 @@
 package graph;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
 import java.util.HashMap;
-import java.util.Set;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import graph.WeightedGraph.Node;
 
@@ -26,27 +27,95 @@ import graph.WeightedGraph.Node;
  * "GraphAlgorithmObservers", which will be notified during the
  * performance of the graph algorithms to update the observers
  * on how the algorithms are progressing.</P>
+ * 
+ * <P>The query methods (queryBFS, queryDijkstra and so on) run the same
+ * algorithms without involving the observers, and return everything 
+ * they found in a SearchResult.  Once the graph has been built, any 
+ * number of threads may run queries on it at the same time.</P>
  */
-public class WeightedGraph<V> {
+public class WeightedGraph<V> implements IndexedGraph<V> {
 
 	
 	/* Collection of observers.  Be sure to initialize this list
 	 * in the constructor.  The method "addObserver" will be
 	 * called to populate this collection.  Your graph algorithms 
 	 * (DFS, BFS, and Dijkstra) will notify these observers to let 
-	 * them know how the algorithms are progressing. 
+	 * them know how the algorithms are progressing.  It is copied
+	 * whenever an observer is added, so that an algorithm (or the
+	 * dispatch thread) can run through it without locking.
 	 */
 	private Collection<GraphAlgorithmObserver<V>> observerList;
 	
 	private ArrayList<Node<V>> verticies;
+	
+	/* Index from vertex key to its node, kept alongside "verticies"
+	 * so that membership tests and lookups do not scan the list.
+	 */
+	private HashMap<V, Node<V>> vertexIndex;
+	
+	/* Once a node has more than this many outgoing edges, its 
+	 * neighbors are indexed in a map instead of being scanned.
+	 */
+	private static final int NEIGHBOR_INDEX_THRESHOLD = 8;
+	
+	/* Largest and smallest weights of any edge added so far. */
+	private int maxWeight;
+	private int minWeight;
+	
+	private DijkstraMode dijkstraMode;
+	
+	/* Counts the changes made to the graph, so that the tree cache can
+	 * tell when its trees have gone stale.  The cache is null unless it
+	 * has been given a size.
+	 */
+	private int modCount;
+	private ShortestPathTreeCache treeCache;
+	
+	/* Calls every observer in observerList, on the thread running the
+	 * algorithm.  When "dispatcher" is set, the algorithms report to it
+	 * instead, and it calls "broadcast" on a thread of its own.
+	 */
+	private GraphAlgorithmObserver<V> broadcast;
+	private AsyncObserverDispatcher<V> dispatcher;
+	
 	 class Node<V>
     {
         V key;
+        int id;
         ArrayList<Adjacency> adjacencies;
-        public Node(V vertex)
+        HashMap<Integer, Adjacency> neighborIndex;
+        public Node(V vertex, int id)
         {
         	key=vertex;
-        	adjacencies=new ArrayList<Adjacency>();
+        	this.id=id;
+        	adjacencies=new ArrayList<Adjacency>(4);
+        }
+        
+        /* Returns the edge leading to the node with id "toId", 
+         * or null if there is none.
+         */
+        Adjacency findAdjacency(int toId) {
+        	if (neighborIndex != null) {
+        		return neighborIndex.get(toId);
+        	}
+        	for (int i=0;i<adjacencies.size();i++) {
+        		if (adjacencies.get(i).node.id == toId) {
+        			return adjacencies.get(i);
+        		}
+        	}
+        	return null;
+        }
+        
+        void addAdjacency(Adjacency e) {
+        	adjacencies.add(e);
+        	if (neighborIndex != null) {
+        		neighborIndex.put(e.node.id, e);
+        	} else if (adjacencies.size() > NEIGHBOR_INDEX_THRESHOLD) {
+        		neighborIndex = new HashMap<Integer, Adjacency>();
+        		for (Adjacency a : adjacencies) {
+        			neighborIndex.put(a.node.id, a);
+        		}
+        	}
         }
         
     }
@@ -66,7 +135,11 @@ public class WeightedGraph<V> {
 	
 	public WeightedGraph() {
 		verticies= new ArrayList<Node<V>>();
-		observerList=new ArrayList<GraphAlgorithmObserver<V>>();
+		vertexIndex= new HashMap<V, Node<V>>();
+		observerList=new CopyOnWriteArrayList<GraphAlgorithmObserver<V>>();
+		broadcast=new Broadcast();
+		dijkstraMode=DijkstraMode.AUTOMATIC;
+		minWeight=Integer.MAX_VALUE;
 	}
 
 	/** Add a GraphAlgorithmObserver to the collection maintained
@@ -78,6 +151,129 @@ public class WeightedGraph<V> {
 		observerList.add(observer);
 	}
 
+	/** 
+	 * <P>From now on, notify the observers on a separate thread, so 
+	 * that the algorithms do not wait for them.  Events are passed to
+	 * that thread through a buffer of the given capacity; when the 
+	 * observers fall so far behind that it fills up, the backpressure
+	 * decides whether the algorithm waits (BLOCK), loses the event
+	 * (DROP), or keeps only the latest event for each vertex until 
+	 * there is room (COALESCE).</P>
+	 * 
+	 * <P>The observers are called in the same order as before, but 
+	 * the Do methods return before the observers have seen everything;
+	 * call awaitObservers to wait for them.  Algorithms must then all
+	 * be run from one thread, and the graph must not be changed while
+	 * the observers are catching up.</P>
+	 * 
+	 * @param backpressure
+	 * @param capacity number of events that can wait to be delivered
+	 */
+	public void setAsynchronousDispatch(Backpressure backpressure, int capacity) {
+		setSynchronousDispatch();
+		dispatcher=new AsyncObserverDispatcher<V>(this, broadcast, backpressure, capacity);
+	}
+
+	/** Go back to notifying the observers on the thread that runs the
+	 * algorithm (the default).  Events already handed to the dispatch
+	 * thread are still delivered.
+	 * 
+	 * @throws RuntimeException the first exception an observer threw 
+	 * on the dispatch thread, if awaitObservers has not rethrown it
+	 */
+	public void setSynchronousDispatch() {
+		if (dispatcher!=null) {
+			AsyncObserverDispatcher<V> closing = dispatcher;
+			dispatcher=null;
+			closing.close();
+		}
+	}
+
+	/** With asynchronous dispatch, wait until the observers have been
+	 * told about everything the algorithms have done so far.  Otherwise
+	 * return at once.
+	 * 
+	 * <P>An exception thrown by an observer on the dispatch thread does
+	 * not stop the delivery of the other events; the first one is 
+	 * rethrown here once they have all been delivered.</P>
+	 * 
+	 * @throws InterruptedException
+	 * @throws RuntimeException the first exception an observer threw
+	 * since the last one was rethrown
+	 */
+	public void awaitObservers() throws InterruptedException {
+		if (dispatcher!=null) {
+			dispatcher.awaitDelivery();
+		}
+	}
+
+	/** Returns the number of events the asynchronous dispatcher has
+	 * discarded (Backpressure.DROP) or replaced by a later event for
+	 * the same vertex (Backpressure.COALESCE).
+	 * 
+	 * @return number of events the observers will never see
+	 */
+	public long getLostEventCount() {
+		if (dispatcher==null) {
+			return 0;
+		}
+		return dispatcher.getDroppedCount() + dispatcher.getCoalescedCount();
+	}
+
+	/** Choose the priority queue used by DoDijsktra.  By default
+	 * (AUTOMATIC) a bucket queue is used when all edge weights are
+	 * small, and a binary heap otherwise.
+	 * 
+	 * @param mode
+	 */
+	public void setDijkstraMode(DijkstraMode mode) {
+		dijkstraMode=mode;
+	}
+
+	/** Keep the complete shortest path trees computed by DoDijsktra 
+	 * and queryDijkstra, so that queryDijkstra can answer later queries
+	 * from the same start vertex without running the algorithm again.
+	 * The trees used least recently are dropped to keep their total
+	 * size within the limit, and all of them are dropped as soon as a
+	 * vertex or edge is added to the graph.
+	 * 
+	 * @param maxBytes largest total size of the trees kept, or 0 to 
+	 * stop keeping them
+	 */
+	public void setTreeCacheLimit(long maxBytes) {
+		if (maxBytes>0) {
+			treeCache=new ShortestPathTreeCache(maxBytes);
+		} else {
+			treeCache=null;
+		}
+	}
+
+	/* Returns a number that changes whenever a vertex or an edge is
+	 * added to the graph.
+	 */
+	int getModificationCount() {
+		return modCount;
+	}
+
+	/** Returns the cache of shortest path trees, which reports how
+	 * well it is doing, or null if there is none (see setTreeCacheLimit).
+	 * 
+	 * @return the cache, or null
+	 */
+	public ShortestPathTreeCache getTreeCache() {
+		return treeCache;
+	}
+
+	/** Compiles the current vertices and edges of this graph into 
+	 * an immutable CompactGraph.  Vertex ids are the same in both, and 
+	 * later changes to this graph do not affect the snapshot.
+	 * 
+	 * @return snapshot of this graph
+	 */
+	public CompactGraph<V> freeze() {
+		return new CompactGraph<V>(this);
+	}
+
 	/** Add a vertex to the graph.  If the vertex is already in the
 	 * graph, throw an IllegalArgumentException.
 	 * 
@@ -90,8 +286,10 @@ public class WeightedGraph<V> {
 			throw new IllegalArgumentException("Vertex already in graph");
 		}
 		else {
-			Node<V> Vertex= new Node<V>(vertex);
+			Node<V> Vertex= new Node<V>(vertex, verticies.size());
 			verticies.add(Vertex);
+			vertexIndex.put(vertex, Vertex);
+			modCount++;
 		}
 	}
 	
@@ -101,12 +299,7 @@ public class WeightedGraph<V> {
 	 * @return true if the vertex is in the graph, false otherwise.
 	 */
 	public boolean containsVertex(V vertex) {
-		for(int i=0;i<verticies.size();i++) {
-			if (verticies.get(i).key.equals(vertex)) {
-				return true;
-			}
-		}
-		return false;
+		return vertexIndex.containsKey(vertex);
 	}
 
 	/** 
@@ -131,28 +324,25 @@ public class WeightedGraph<V> {
 		if(weight<0) {
 			throw new IllegalArgumentException("weight is a negative integer");
 		}
-		else if(!containsVertex(from)) {
+		Node<V> From= vertexIndex.get(from);
+		if(From==null) {
 			throw new IllegalArgumentException("From vertex is not found");
 		}
-		else if(!containsVertex(to)) {
+		Node<V> To= vertexIndex.get(to);
+		if(To==null) {
 			throw new IllegalArgumentException("To vertex is not found");
 		}
-		else {
-			for(int i=0;i<verticies.size();i++) {
-				if (verticies.get(i).key.equals(from)) {
-					for(int k=0;k<verticies.size();k++) {
-						Node<V> To= verticies.get(k);
-						if (verticies.get(k).key.equals(to)) {
-							Adjacency e= new Adjacency(To,weight);
-							if(!verticies.get(i).adjacencies.contains(e))
-								verticies.get(i).adjacencies.add(e);
-						}
-					
-					}
-				}
+		/* an edge that is already present keeps its original weight */
+		if(From.findAdjacency(To.id)==null) {
+			From.addAdjacency(new Adjacency(To,weight));
+			modCount++;
+			if(weight>maxWeight) {
+				maxWeight=weight;
+			}
+			if(weight<minWeight) {
+				minWeight=weight;
 			}
 		}
-		
 	}
 
 	/** 
@@ -171,39 +361,28 @@ public class WeightedGraph<V> {
 	 * the vertices specified are not in the graph.
 	 */
 	public Integer getWeight(V from, V to) {
-		if(!containsVertex(from)) {	
+		Node<V> From= vertexIndex.get(from);
+		if(From==null) {	
 			throw new IllegalArgumentException("From vertex is not found");
 		}
-		
-		else if(!containsVertex(to)) {
+		Node<V> To= vertexIndex.get(to);
+		if(To==null) {
 			throw new IllegalArgumentException("To vertex is not found");
 		}
 		
-		else if (verticies.size()<2) {
+		if (verticies.size()<2) {
 			throw new IllegalArgumentException("Not enough verticies");
 		}
 		
-		else {
-			for(int i=0;i<verticies.size();i++) {
-				if (verticies.get(i).key.equals(from)) {
-					for(int k=0;k<verticies.get(i).adjacencies.size();k++) {
-						if(verticies.get(i).adjacencies.get(k).node.key.equals(to)){
-							return verticies.get(i).adjacencies.get(k).weight;
-						}
-					}
-					return null;
-				}
-			}
+		Adjacency e= From.findAdjacency(To.id);
+		if(e==null) {
 			return null;
 		}
+		return e.weight;
 	}
+	
 	public Node<V> findNode(V key){
-		for(int i=0;i<verticies.size();i++) {
-			if(verticies.get(i).key.equals(key)) {
-				return verticies.get(i);
-			}
-		}
-		return null;
+		return vertexIndex.get(key);
 	}
 	/** 
 	 * <P>This method will perform a Breadth-First-Search on the graph.
@@ -228,91 +407,55 @@ public class WeightedGraph<V> {
 	 * @param start vertex where search begins
 	 * @param end the algorithm terminates just after this vertex
 	 * is visited
+	 * @return a path from start to end with the fewest edges, and the
+	 * number of vertices visited
 	 */
-	public void DoBFS(V start, V end) {
-		
-		for (int i=0;i<observerList.size();i++) {
-			((ArrayList<GraphAlgorithmObserver<V>>) observerList).get(i).notifyBFSHasBegun();
-		}
-		ArrayList<V> visited=new ArrayList<V>();
-		ArrayList<V> searchPath=new ArrayList<V>();
-		Node <V> startNode= this.findNode(start);
-		visited.add(startNode.key);
-		searchPath.add(startNode.key);
-		
-		for (int k=0;k<observerList.size();k++) {
-			((ArrayList<GraphAlgorithmObserver<V>>) observerList).get(k).notifyVisit(startNode.key);
-		}		
-		
-		if(startNode!=null && end!=null && !startNode.key.equals(end)) {
-			BFS(startNode.adjacencies,end, searchPath, visited);
-		}
-		/*
-		for(V element : visited) {
-			for (int k=0;k<observerList.size();k++) {
-				((ArrayList<GraphAlgorithmObserver<V>>) observerList).get(k).notifyVisit(element);
-			}
-		}
-		*/
+	public SearchResult<V> DoBFS(V start, V end) {
 		
-		for (int i=0;i<observerList.size();i++) {
-			((ArrayList<GraphAlgorithmObserver<V>>) observerList).get(i).notifySearchIsOver();
-		}
+		notifier().notifyBFSHasBegun();
+		SearchResult<V> result = breadthFirst(start, end, listener());
+		notifier().notifySearchIsOver();
+		return result;
 	}
 	
-	//check node
-	public boolean BFS(Node<V>startNode,V end, ArrayList<V> searchPath, ArrayList<V> visited) {
-		if(visited.contains(startNode.key)) {
-			return false;
-		}
-		visited.add(startNode.key);	
-		
-		for (int k=0;k<observerList.size();k++) {
-			((ArrayList<GraphAlgorithmObserver<V>>) observerList).get(k).notifyVisit(startNode.key);
-		}
-		
-		
-		if(startNode.key.equals(end)) {
-			searchPath.add(startNode.key);
-			return true;
-		}
-		return BFS(startNode.adjacencies,end,searchPath, visited);
-
+	/** Performs the same Breadth-First-Search as DoBFS, but without
+	 * notifying the observers.  Any number of threads may call the 
+	 * query methods at once, as long as the graph is not being changed.
+	 * 
+	 * @param start vertex where search begins
+	 * @param end the search terminates just after this vertex is visited
+	 * @return a path from start to end with the fewest edges, and the
+	 * number of vertices visited
+	 */
+	public SearchResult<V> queryBFS(V start, V end) {
+		return breadthFirst(start, end, null);
 	}
-
-	// check node's children
-	public boolean BFS(ArrayList<Adjacency> adjacencies,V end, ArrayList<V> searchPath, ArrayList<V> visited) {
-		
-		if(!adjacencies.isEmpty()) {
-			
-			for (WeightedGraph<V>.Adjacency element : adjacencies) {
-				
-				if(visited.contains(element.node.key)) {
-					continue;
-				}	
-				
-				for (int k=0;k<observerList.size();k++) {
-					((ArrayList<GraphAlgorithmObserver<V>>) observerList).get(k).notifyVisit(element.node.key);
-				}
-				
-				visited.add(element.node.key);
-				if(element.node.key.equals(end)) {
-					searchPath.add(element.node.key);
-					return true;
-				}
-			}
-			ArrayList<Adjacency> children = new ArrayList<Adjacency>();
-			for (WeightedGraph<V>.Adjacency element : adjacencies) {
-				for (WeightedGraph<V>.Adjacency child : element.node.adjacencies) {
-					if(!children.contains(child) && !visited.contains(child.node.key))
-						children.add(child);
-				}
+	
+	private SearchResult<V> breadthFirst(V start, V end, SearchListener listener) {
+		long begin = System.nanoTime();
+		int[] path = null;
+		int visited = 0;
+		Node <V> startNode= this.findNode(start);
+		if(startNode!=null) {
+			/* with no "end" only the start is visited; with an "end" that
+			 * is not in the graph every reachable vertex is visited */
+			int endId;
+			if(end==null) {
+				endId=startNode.id;
+			} else {
+				endId=getVertexId(end);
 			}
-			if(!children.isEmpty() && BFS(children,end,searchPath, visited)) {
-				return true;
+			int[] parents = new int[verticies.size()];
+			Arrays.fill(parents, -1);
+			visited = GraphSearch.breadthFirst(this, startNode.id, endId, new IntRingQueue(64), 
+					parents, listener);
+			/* the search stops at "end", so it was visited if it was
+			 * discovered at all */
+			if(end!=null && endId>=0 && (endId==startNode.id || parents[endId]!=-1)) {
+				path = GraphSearch.joinPaths(parents, endId, null, -1);
 			}
 		}
-		return false;
+		return result(path, visited, begin);
 	}
 	
 
@@ -339,67 +482,50 @@ public class WeightedGraph<V> {
 	 * @param start vertex where search begins
 	 * @param end the algorithm terminates just after this vertex
 	 * is visited
+	 * @return the path the search found from start to end, and the
+	 * number of vertices visited
 	 */
-	public void DoDFS(V start, V end) {
-		
-		for (int i=0;i<observerList.size();i++) {
-			((ArrayList<GraphAlgorithmObserver<V>>) observerList).get(i).notifyDFSHasBegun();
-		}
-		Node <V> startNode= this.findNode(start);
-		ArrayList<V> visited=new ArrayList<V>();
-		ArrayList<V> searchPath=new ArrayList<V>();
-		if(startNode!=null && end!=null && !startNode.key.equals(end)) {
-				DFS(startNode,end,searchPath, visited);
-		}
-		
-		
-		for(V element : searchPath) {
-			for (int k=0;k<observerList.size();k++) {
-				((ArrayList<GraphAlgorithmObserver<V>>) observerList).get(k).notifyVisit(element);
-			}
-		}
-		
-
-		for (int i=0;i<observerList.size();i++) {
-			((ArrayList<GraphAlgorithmObserver<V>>) observerList).get(i).notifySearchIsOver();
-		}
+	public SearchResult<V> DoDFS(V start, V end) {
 		
+		notifier().notifyDFSHasBegun();
+		SearchResult<V> result = depthFirst(start, end, listener());
+		notifier().notifySearchIsOver();
+		return result;
 	}
-	public boolean DFS(Node<V>startNode,V end,ArrayList<V> searchPath, ArrayList<V> visited) {
-		if(visited.contains(startNode.key)) {
-			return false;
-		}
-		visited.add(startNode.key);	
-		searchPath.add(startNode.key);
-
-		if(startNode!=null && !startNode.key.equals(end)) {
-			if(startNode.adjacencies.isEmpty()) {
-				searchPath.remove(startNode.key);		
-				return false;
-			} 
-			else {
-				for (WeightedGraph<V>.Adjacency element : startNode.adjacencies) {
-					if(DFS(element.node,end,searchPath, visited) == true) {
-						/*	for (int k=0;k<observerList.size();k++) {
-						((ArrayList<GraphAlgorithmObserver<V>>) observerList).get(k).notifyVisit(startNode.key);
-					}
-					*/
-						return true;
-					}
+	
+	/** Performs the same Depth-First-Search as DoDFS, but without
+	 * notifying the observers.  Safe to call from several threads at
+	 * once (see queryBFS).
+	 * 
+	 * @param start vertex where search begins
+	 * @param end the search terminates just after this vertex is visited
+	 * @return the path the search found from start to end, and the
+	 * number of vertices visited
+	 */
+	public SearchResult<V> queryDFS(V start, V end) {
+		return depthFirst(start, end, null);
+	}
+	
+	private SearchResult<V> depthFirst(V start, V end, SearchListener listener) {
+		long begin = System.nanoTime();
+		int[] path = null;
+		int visited = 0;
+		Node <V> startNode= this.findNode(start);
+		Node <V> endNode= this.findNode(end);
+		if(startNode!=null && endNode!=null) {
+			BitSet marked = new BitSet(verticies.size());
+			path = GraphSearch.depthFirst(this, startNode.id, endNode.id, marked);
+			visited = marked.cardinality();
+			/* the observers are shown the path that was found */
+			if(listener!=null) {
+				for(int id : path) {
+					listener.vertexVisited(id);
 				}
-				searchPath.remove(startNode.key);		
-				return false;
 			}
-		} 
-	/*	for (int k=0;k<observerList.size();k++) {
-			((ArrayList<GraphAlgorithmObserver<V>>) observerList).get(k).notifyVisit(startNode.key);
 		}
-		*/
-		return true;
-		
+		return result(path, visited, begin);
 	}
 	
-	
 	/** 
 	 * <P>Perform Dijkstra's algorithm, beginning at the "start"
 	 * vertex.</P>
@@ -432,93 +558,395 @@ public class WeightedGraph<V> {
 	 * @param start vertex where algorithm will start
 	 * @param end special vertex used as the end of the path 
 	 * reported to observers via the notifyDijkstraIsOver method.
+	 * @return the lowest cost path from start to end, its cost, and
+	 * the number of vertices added to the finished set
 	 */
-	public void DoDijsktra(V start, V end) {
-		for (int i=0;i<observerList.size();i++) {
-			((ArrayList<GraphAlgorithmObserver<V>>) observerList).get(i).notifyDijkstraHasBegun();
+	public SearchResult<V> DoDijsktra(V start, V end) {
+		notifier().notifyDijkstraHasBegun();
+		SearchResult<V> result = dijkstra(start, end, listener());
+		if(result.isPathFound()) {
+			notifier().notifyDijkstraIsOver(result.getPath());
 		}
-		
-		HashMap<Node<V>, Node<V>> predecessors = new HashMap<Node<V>, Node<V>>();
-		HashMap<Node<V>, Integer> nodeWeights = new HashMap<Node<V>, Integer>();
-		ArrayList<Node<V>> visited= new ArrayList<Node<V>>();
-		ArrayList<Node<V>> calculating= new ArrayList<Node<V>>();
+		return result;
+	}
+	
+	/** Finds the lowest cost path from "start" to "end" with Dijkstra's
+	 * algorithm, like DoDijsktra but without notifying the observers. 
+	 * Safe to call from several threads at once (see queryBFS).
+	 * 
+	 * <P>If there is a tree cache (see setTreeCacheLimit) that already
+	 * holds the tree from "start", the path is read from it, and no 
+	 * vertices are added to the finished set.</P>
+	 * 
+	 * @param start vertex where the path begins
+	 * @param end vertex where the path ends
+	 * @return the lowest cost path from start to end, its cost, and
+	 * the number of vertices added to the finished set
+	 */
+	public SearchResult<V> queryDijkstra(V start, V end) {
+		return dijkstra(start, end, null);
+	}
+	
+	private SearchResult<V> dijkstra(V start, V end, SearchListener listener) {
+		long begin = System.nanoTime();
 		Node <V> startNode = this.findNode(start);
-		if(startNode!=null) {	
-			nodeWeights.put(startNode, 0);
-			calculating.add(startNode);
-			while(calculating.size() > 0) {
-				Node<V> node = getClosestNode(calculating, nodeWeights);
-				visited.add(node);
-				calculating.remove(node);
-				for (int i=0;i<observerList.size();i++) {
-					((ArrayList<GraphAlgorithmObserver<V>>) observerList).get(i).notifyDijkstraVertexFinished(node.key, lookupWeight(node, nodeWeights));
-				}
-
-				
-		        List<Node<V>> adjacentNodes = getUnvisitedAdjacentNodes(node, visited);
-		        for (Node<V> target : adjacentNodes) {
-		            if (lookupWeight(target, nodeWeights) > lookupWeight(node, nodeWeights)
-		                    + getWeight(node.key, target.key)) {
-		            	nodeWeights.put(target, lookupWeight(node, nodeWeights) + getWeight(node.key, target.key));
-		                predecessors.put(target, node);
-		                calculating.add(target);
-		            }
-		        }
-		    }
+		if(startNode==null) {
+			return result(null, 0, begin);
+		}
+		/* observers must see every vertex finished, so only queries 
+		 * may be answered from the cache */
+		ShortestPathTreeCache cache = treeCache;
+		ShortestPathTree tree = null;
+		if(cache!=null && listener==null) {
+			tree = cache.get(startNode.id, modCount);
+		}
+		int settled = 0;
+		if(tree==null) {
+			tree = ShortestPaths.dijkstra(this, startNode.id, dijkstraMode, listener);
+			settled = tree.getSettledCount();
+			if(cache!=null) {
+				cache.put(tree, modCount);
+			}
 		}
-		
-		ArrayList<V> pathToEnd = new ArrayList<V>();
 		Node<V> step = this.findNode(end);
-		if(predecessors.containsKey(step)) {
-			pathToEnd.add(step.key);
-			while (predecessors.get(step) != null) {
-				step = predecessors.get(step);
-				pathToEnd.add(step.key);
+		int[] path = null;
+		if(step!=null && tree.isReachable(step.id)) {
+			path = tree.getPathTo(step.id);
+		}
+		return result(path, settled, begin);
+	}
+	
+	/** 
+	 * <P>Perform an A* search from the "start" vertex to the "end"
+	 * vertex.  This finds the same lowest cost path as DoDijsktra,
+	 * but it stops as soon as the "end" vertex has been added to the 
+	 * finished set, and the heuristic steers it towards the end so
+	 * that far fewer vertices are finished along the way.</P>
+	 * 
+	 * <P>The observers are notified exactly as they are by DoDijsktra:
+	 * notifyDijkstraHasBegun first, then notifyDijkstraVertexFinished
+	 * for every vertex added to the finished set, and finally
+	 * notifyDijkstraIsOver with the lowest cost path from start to 
+	 * end (if there is one).</P>
+	 * 
+	 * @param start vertex where the search begins
+	 * @param end vertex where the search ends
+	 * @param heuristic consistent lower bound on the cost of reaching
+	 * "end" from each vertex id
+	 * @return the lowest cost path from start to end, its cost, and
+	 * the number of vertices added to the finished set
+	 */
+	public SearchResult<V> DoAStar(V start, V end, Heuristic heuristic) {
+		notifier().notifyDijkstraHasBegun();
+		SearchResult<V> result = aStar(start, end, heuristic, listener());
+		if(result.isPathFound()) {
+			notifier().notifyDijkstraIsOver(result.getPath());
+		}
+		return result;
+	}
+	
+	/** Performs the same A* search as DoAStar, but without notifying
+	 * the observers.  Safe to call from several threads at once (see
+	 * queryBFS), provided the heuristic is.
+	 * 
+	 * @param start vertex where the search begins
+	 * @param end vertex where the search ends
+	 * @param heuristic consistent lower bound on the cost of reaching
+	 * "end" from each vertex id
+	 * @return the lowest cost path from start to end, its cost, and
+	 * the number of vertices added to the finished set
+	 */
+	public SearchResult<V> queryAStar(V start, V end, Heuristic heuristic) {
+		return aStar(start, end, heuristic, null);
+	}
+	
+	private SearchResult<V> aStar(V start, V end, Heuristic heuristic, SearchListener listener) {
+		long begin = System.nanoTime();
+		Node<V> startNode = this.findNode(start);
+		Node<V> endNode = this.findNode(end);
+		if(startNode==null || endNode==null) {
+			return result(null, 0, begin);
+		}
+		ShortestPathTree tree = ShortestPaths.aStar(this, startNode.id, endNode.id, heuristic, 
+				listener);
+		int[] path = null;
+		if(tree.isReachable(endNode.id)) {
+			path = tree.getPathTo(endNode.id);
+		}
+		return result(path, tree.getSettledCount(), begin);
+	}
+	
+	/** 
+	 * <P>Perform a bidirectional Breadth-First-Search: one frontier
+	 * grows from the "start" vertex while another grows backwards from
+	 * the "end" vertex, until they meet.  On a grid such as a maze this
+	 * visits roughly half as many vertices as DoBFS.</P>
+	 * 
+	 * <P>Observers are notified as with DoBFS, except that each visit
+	 * is reported through notifyBidirectionalVisit, which tells the
+	 * observer which of the two frontiers advanced.</P>
+	 * 
+	 * @param start vertex where the path begins
+	 * @param end vertex where the path ends
+	 * @return a path from start to end with the fewest edges, or an
+	 * empty list if there is none
+	 */
+	public List<V> DoBidirectionalBFS(V start, V end) {
+		notifier().notifyBFSHasBegun();
+		ArrayList<V> path = new ArrayList<V>();
+		Node<V> startNode = this.findNode(start);
+		Node<V> endNode = this.findNode(end);
+		if(startNode!=null && endNode!=null) {
+			for(int id : GraphSearch.bidirectionalBreadthFirst(this, reverseGraph(), startNode.id, 
+					endNode.id, listener())) {
+				path.add(verticies.get(id).key);
 			}
-			Collections.reverse(pathToEnd);
-			for (int i=0;i<observerList.size();i++) {
-				((ArrayList<GraphAlgorithmObserver<V>>) observerList).get(i).notifyDijkstraIsOver(pathToEnd);
+		}
+		notifier().notifySearchIsOver();
+		return path;
+	}
+	
+	/** 
+	 * <P>Perform a bidirectional version of Dijkstra's algorithm: one
+	 * search runs from the "start" vertex and another runs backwards
+	 * from the "end" vertex, and both stop as soon as the lowest cost 
+	 * path between start and end is known.</P>
+	 * 
+	 * <P>Observers are notified as with DoAStar, except that finished
+	 * vertices are reported through notifyBidirectionalVertexFinished,
+	 * which tells the observer which of the two searches advanced.</P>
+	 * 
+	 * @param start vertex where the path begins
+	 * @param end vertex where the path ends
+	 * @return the lowest cost path from start to end, or an empty list
+	 * if there is none
+	 */
+	public List<V> DoBidirectionalDijkstra(V start, V end) {
+		notifier().notifyDijkstraHasBegun();
+		ArrayList<V> path = new ArrayList<V>();
+		Node<V> startNode = this.findNode(start);
+		Node<V> endNode = this.findNode(end);
+		if(startNode!=null && endNode!=null) {
+			int[] ids = ShortestPaths.bidirectionalDijkstra(this, reverseGraph(), startNode.id, 
+					endNode.id, listener());
+			if(ids!=null) {
+				for(int id : ids) {
+					path.add(verticies.get(id).key);
+				}
 			}
-
 		}
-		
-		
+		if(!path.isEmpty()) {
+			notifier().notifyDijkstraIsOver(path);
+		}
+		return path;
 	}
 	
-	public int lookupWeight(Node<V> node, HashMap<Node<V>, Integer> nodeWeights)  {
-		Integer d = nodeWeights.get(node);
-        if (d == null) {
-            return Integer.MAX_VALUE;
-        } else {
-            return d;
-        }		
+	/** Returns true if, for every edge from A to B, this graph also
+	 * has an edge from B to A with the same weight.  Bidirectional 
+	 * searches can then use this graph as its own reverse.
+	 * 
+	 * @return true if every edge is known to have a matching reverse edge
+	 */
+	protected boolean hasSymmetricEdges() {
+		return false;
 	}
 	
+	/* The graph that backward searches run on. */
+	private IndexedGraph<V> reverseGraph() {
+		if(hasSymmetricEdges()) {
+			return this;
+		}
+		return freeze().reverse();
+	}
 	
-	public Node<V> getClosestNode(ArrayList<Node<V>> nodes, HashMap<Node<V>, Integer> nodeWeights) {
-		Node<V> closest = null;
-        for (Node<V> node : nodes) {
-            if (closest == null) {
-            	closest = node;
-            } else {
-                if (lookupWeight(node, nodeWeights) < lookupWeight(closest, nodeWeights)) {
-                	closest = node;
-                }
-            }
-        }
-        return closest;		
+	/** Returns the smallest weight of any edge in the graph.
+	 * 
+	 * @return smallest edge weight, or 0 if the graph has no edges
+	 */
+	public int getMinWeight() {
+		return minWeight == Integer.MAX_VALUE ? 0 : minWeight;
 	}
 	
+	@Override
+	public int getVertexCount() {
+		return verticies.size();
+	}
 	
-    public List<Node<V>> getUnvisitedAdjacentNodes(Node<V> node, ArrayList<Node<V>> visited) {
-    	List<Node<V>> adjNodes = new ArrayList<Node<V>>();
-    	for(Adjacency adj : node.adjacencies) {
-    		if(!visited.contains(adj.node)) {
-    			adjNodes.add(adj.node);
-    		}
-    	}
-    	return adjNodes;
-    }
+	@Override
+	public V getVertex(int id) {
+		return verticies.get(id).key;
+	}
 	
-
+	@Override
+	public int getVertexId(V vertex) {
+		Node<V> node = vertexIndex.get(vertex);
+		return node == null ? -1 : node.id;
+	}
+	
+	@Override
+	public int getDegree(int id) {
+		return verticies.get(id).adjacencies.size();
+	}
+	
+	@Override
+	public int getNeighbor(int id, int index) {
+		return verticies.get(id).adjacencies.get(index).node.id;
+	}
+	
+	@Override
+	public int getNeighborWeight(int id, int index) {
+		return verticies.get(id).adjacencies.get(index).weight;
+	}
+	
+	@Override
+	public int getMaxWeight() {
+		return maxWeight;
+	}
+	
+	/* Packages up a path of vertex ids (null if none was found) and
+	 * the number of vertices visited, working out the cost of the path
+	 * and the time taken since "begin" (from System.nanoTime).
+	 */
+	private SearchResult<V> result(int[] path, int visited, long begin) {
+		if(path==null || path.length==0) {
+			return new SearchResult<V>(new int[0], new ArrayList<V>(), ShortestPathTree.UNREACHABLE, 
+					visited, System.nanoTime() - begin);
+		}
+		ArrayList<V> vertices = new ArrayList<V>(path.length);
+		vertices.add(verticies.get(path[0]).key);
+		int cost = 0;
+		for(int i=1;i<path.length;i++) {
+			Node<V> node = verticies.get(path[i]);
+			cost += verticies.get(path[i-1]).findAdjacency(node.id).weight;
+			vertices.add(node.key);
+		}
+		return new SearchResult<V>(path, vertices, cost, visited, System.nanoTime() - begin);
+	}
+	
+	/* Where the algorithms send the events that begin and end them. */
+	private GraphAlgorithmObserver<V> notifier() {
+		if(dispatcher!=null && !observerList.isEmpty()) {
+			return dispatcher;
+		}
+		return broadcast;
+	}
+	
+	/* Where the algorithms send their progress, or null if nobody is
+	 * watching, so that they skip reporting it altogether.
+	 */
+	private SearchListener listener() {
+		if(observerList.isEmpty()) {
+			return null;
+		}
+		if(dispatcher!=null) {
+			return dispatcher;
+		}
+		return new ObserverListener();
+	}
+	
+	/* Passes the progress of an algorithm running on vertex ids on 
+	 * to the observers, in terms of vertices.
+	 */
+	private class ObserverListener implements SearchListener {
+		
+		@Override
+		public void vertexVisited(int id) {
+			V vertex = verticies.get(id).key;
+			for (GraphAlgorithmObserver<V> observer : observerList) {
+				observer.notifyVisit(vertex);
+			}
+		}
+		
+		@Override
+		public void vertexFinished(int id, int cost) {
+			V vertex = verticies.get(id).key;
+			for (GraphAlgorithmObserver<V> observer : observerList) {
+				observer.notifyDijkstraVertexFinished(vertex, cost);
+			}
+		}
+		
+		@Override
+		public void frontierVisited(int id, boolean forward) {
+			V vertex = verticies.get(id).key;
+			for (GraphAlgorithmObserver<V> observer : observerList) {
+				observer.notifyBidirectionalVisit(vertex, forward);
+			}
+		}
+		
+		@Override
+		public void frontierFinished(int id, int cost, boolean forward) {
+			V vertex = verticies.get(id).key;
+			for (GraphAlgorithmObserver<V> observer : observerList) {
+				observer.notifyBidirectionalVertexFinished(vertex, cost, forward);
+			}
+		}
+	}
+	
+	/* Calls each observer in turn. */
+	private class Broadcast implements GraphAlgorithmObserver<V> {
+		
+		@Override
+		public void notifyDFSHasBegun() {
+			for (GraphAlgorithmObserver<V> observer : observerList) {
+				observer.notifyDFSHasBegun();
+			}
+		}
+		
+		@Override
+		public void notifyBFSHasBegun() {
+			for (GraphAlgorithmObserver<V> observer : observerList) {
+				observer.notifyBFSHasBegun();
+			}
+		}
+		
+		@Override
+		public void notifyVisit(V vertexBeingVisited) {
+			for (GraphAlgorithmObserver<V> observer : observerList) {
+				observer.notifyVisit(vertexBeingVisited);
+			}
+		}
+		
+		@Override
+		public void notifySearchIsOver() {
+			for (GraphAlgorithmObserver<V> observer : observerList) {
+				observer.notifySearchIsOver();
+			}
+		}
+		
+		@Override
+		public void notifyDijkstraHasBegun() {
+			for (GraphAlgorithmObserver<V> observer : observerList) {
+				observer.notifyDijkstraHasBegun();
+			}
+		}
+		
+		@Override
+		public void notifyDijkstraVertexFinished(V vertexAddedToFinishedSet, Integer costOfPath) {
+			for (GraphAlgorithmObserver<V> observer : observerList) {
+				observer.notifyDijkstraVertexFinished(vertexAddedToFinishedSet, costOfPath);
+			}
+		}
+		
+		@Override
+		public void notifyDijkstraIsOver(List<V> path) {
+			for (GraphAlgorithmObserver<V> observer : observerList) {
+				observer.notifyDijkstraIsOver(path);
+			}
+		}
+		
+		@Override
+		public void notifyBidirectionalVisit(V vertexBeingVisited, boolean fromStart) {
+			for (GraphAlgorithmObserver<V> observer : observerList) {
+				observer.notifyBidirectionalVisit(vertexBeingVisited, fromStart);
+			}
+		}
+		
+		@Override
+		public void notifyBidirectionalVertexFinished(V vertexAddedToFinishedSet, 
+				Integer costOfPath, boolean fromStart) {
+			for (GraphAlgorithmObserver<V> observer : observerList) {
+				observer.notifyBidirectionalVertexFinished(vertexAddedToFinishedSet, costOfPath, fromStart);
+			}
+		}
+	}
 }
@@ -0,0 +1,23 @@
+package maze;
+
+/**
+ * <P>Keeps the words of a maze in a long[] on the heap, as a newly
+ * generated maze (or one read from a stream) does.</P>
+ */
+class ArrayMazeStore implements MazeStore {
+	private final long[] words;
+
+	ArrayMazeStore(long[] words) {
+		this.words = words;
+	}
+
+	@Override
+	public long getWord(long index) {
+		return words[(int) index];
+	}
+
+	@Override
+	public long getWordCount() {
+		return words.length;
+	}
+}
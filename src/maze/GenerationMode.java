@@ -0,0 +1,37 @@
+package maze;
+
+/**
+ * Selects how a Maze grows its walls.  CLASSIC and WORKLIST draw the
+ * same kind of maze; they differ in how a wall that has run into itself
+ * finds a place to continue from.  TILED draws it in pieces, in 
+ * parallel.
+ */
+public enum GenerationMode {
+
+	/** Pick random posts anywhere in the grid until one belongs to the
+	 * wall and can be extended.  This is the original algorithm, and it
+	 * makes the same random choices for the same seed, but a large maze
+	 * can spend most of its time guessing (a 1000 x 1000 maze takes
+	 * about 20 times as long as with WORKLIST).
+	 */
+	CLASSIC,
+
+	/** Pick among the posts of the wall itself, dropping those that can
+	 * no longer be extended, and choose directions only among the open
+	 * ones.  Every step does a bounded amount of work, which keeps very
+	 * large mazes fast; the mazes differ from CLASSIC ones for the same
+	 * seed.
+	 */
+	WORKLIST,
+
+	/** Divide the grid into square tiles, and draw the walls inside
+	 * each tile as WORKLIST does, the tiles in parallel, each with its
+	 * own random numbers split off from the seed.  The walls between
+	 * the tiles then get one opening for each pair of tiles joined by a
+	 * random spanning tree of the tiles, so there is still exactly one
+	 * path between any two junctures before sparcity removes walls.  
+	 * The maze depends on the seed and the tile size, but not on the
+	 * number of threads.
+	 */
+	TILED
+}
@@ -0,0 +1,51 @@
+package maze;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <P>Reads the words of a maze straight from a file mapped into memory
+ * (read only), so the maze takes no heap of its own, loads without
+ * reading the file, and shares its pages with every other process that
+ * maps the same file.</P>
+ * 
+ * <P>A single MappedByteBuffer can cover at most 2 GB, so the words are
+ * mapped in segments of 2^segmentShift bytes.  The words begin at a
+ * multiple of 8 bytes into the file, so no word is split between two
+ * segments.</P>
+ */
+class MappedMazeStore implements MazeStore {
+	private final MappedByteBuffer[] segments;
+	private final long wordCount;
+	private final int segmentShift;
+	private final long segmentMask;
+
+	/* Maps "wordCount" words starting "offset" bytes into the file.  
+	 * The mapping stays valid after the channel is closed.
+	 */
+	MappedMazeStore(FileChannel channel, long offset, long wordCount, int segmentShift) throws IOException {
+		this.wordCount = wordCount;
+		this.segmentShift = segmentShift;
+		long segmentBytes = 1L << segmentShift;
+		segmentMask = segmentBytes - 1;
+		long bytes = wordCount * 8;
+		segments = new MappedByteBuffer[(int) ((bytes + segmentBytes - 1) >>> segmentShift)];
+		for (int s = 0; s < segments.length; s++) {
+			long start = (long) s << segmentShift;
+			segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, 
+					Math.min(segmentBytes, bytes - start));
+		}
+	}
+
+	@Override
+	public long getWord(long index) {
+		long position = index << 3;
+		return segments[(int) (position >>> segmentShift)].getLong((int) (position & segmentMask));
+	}
+
+	@Override
+	public long getWordCount() {
+		return wordCount;
+	}
+}
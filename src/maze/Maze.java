@@ -1,8 +1,17 @@
 package maze;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * 
@@ -16,29 +25,93 @@ import java.util.Random;
  * "cost" of traveling from a juncture to an adjacent 
  * juncture.</P>
  * 
+ * <P>A maze can be saved with write, in a binary format, and loaded 
+ * again with read, or with map, which serves the maze straight from 
+ * the file mapped into memory.  The format is a 24 byte header (the
+ * int MAGIC, the int FORMAT_VERSION, the width and height in junctures,
+ * and the long number of words that follow), and then the packed walls
+ * and weights, as 64-bit big-endian words in the order they are kept in
+ * memory.  A maze too large to generate in memory can be written
+ * straight to a file in this format by StreamingMazeGenerator.</P>
  *
  */
 public class Maze {
 
-	private static Random random = new Random();
+	/** Smallest and largest weight between two adjacent junctures. */
+	public static final int MIN_WEIGHT = 1;
+	public static final int MAX_WEIGHT = 9;
+
+	/** The first four bytes of a maze file ("MZE1"). */
+	public static final int MAGIC = 0x4d5a4531;
+
+	/** The version of the maze file format that write produces. */
+	public static final int FORMAT_VERSION = 1;
+
+	/* Bytes in the header of a maze file. */
+	static final int HEADER_BYTES = 24;
+
+	/* Bytes in each segment of a mapped maze file. */
+	private static final int SEGMENT_SHIFT = 30;
+
+	/* Row and column steps from a post to its neighbor on the right,
+	 * left, above and below, the order the directions are numbered in.
+	 */
+	private static final int[] ROW_STEP = {0, 0, -1, 1};
+	private static final int[] COLUMN_STEP = {1, -1, 0, 0};
+
+	/** Side, in junctures, of the tiles a TILED maze is drawn in, when
+	 * no other size is given. */
+	public static final int DEFAULT_TILE_SIZE = 256;
+
+	/* Weights drawn by each job of a TILED maze; a multiple of 16, so 
+	 * that no two jobs write the same word. */
+	private static final int WEIGHT_CHUNK = 1 << 16;
+
+	/* Seeds for the mazes constructed without one. */
+	private static final Random seedSource = new Random();
+
+	/* While the maze is being generated, the random numbers. */
+	private Random random;
 	private int width, height;  // wall dimensions, not junctures
-	private int[][] wallIndex;
-	private boolean[][] wallToRight;
-	private boolean[][] wallDown;
-	private int [][] horizontalWeights;
-	private int [][] verticalWeights;
+	/* The walls and weights are packed into one sequence of words, 
+	 * kept by "store", in four sections that begin at the word offsets
+	 * below.  
+	 * 
+	 * The walls are stored as bits, one row of the grid of posts after
+	 * another; each row starts a new word, so a row is "rowWords" words.
+	 * The wallToRight section (at 0) has the wall from each post to the
+	 * post on its right, and the wallDown section the wall from each 
+	 * post to the post below it.
+	 * 
+	 * The weights take 4 bits each (MAX_WEIGHT must stay below 16), 16
+	 * to a word: the horizontalWeights section has the weights between
+	 * each juncture and the one below it, (height - 2) rows of 
+	 * (width - 1), and the verticalWeights section those between each
+	 * juncture and the one to its right, (height - 1) rows of 
+	 * (width - 2).
+	 */
+	private static final long WALL_TO_RIGHT = 0;
+	private int rowWords;
+	private long wallDown;
+	private long horizontalWeights;
+	private long verticalWeights;
+	private long wordCount;
+	private MazeStore store;
+
+	/* While the maze is being generated, the words of the store. */
+	private long[] words;
 	
 	/**
 	 * Construct random maze.
 	 * 
 	 * @param mazeHeight
 	 * @param mazeWidth
-	 * @param sparcity value from 0 to 100.  If set to 100, there is exactly one path
-	 * from any juncture to any other juncture.  Lower values have fewer walls, hence 
+	 * @param sparcity value from 0 to 100.  If set to 0, there is exactly one path
+	 * from any juncture to any other juncture.  Higher values have fewer walls, hence 
 	 * more paths between junctures.
 	 */
 	public Maze(int mazeHeight, int mazeWidth, int sparcity) {
-		this(mazeHeight, mazeWidth, sparcity, random.nextLong());
+		this(mazeHeight, mazeWidth, sparcity, seedSource.nextLong());
 	}
 	
 	/**
@@ -51,149 +124,629 @@ public class Maze {
 	 * @param randomSeed
 	 */
 	public Maze(int mazeHeight, int mazeWidth, int sparcity, long randomSeed) {
+		this(mazeHeight, mazeWidth, sparcity, randomSeed, GenerationMode.WORKLIST);
+	}
+
+	/**
+	 * This constructor also chooses how the walls are drawn (the 
+	 * others use WORKLIST).  A TILED maze is drawn in tiles of 
+	 * DEFAULT_TILE_SIZE, on the common ForkJoinPool.
+	 * 
+	 * @param mazeHeight
+	 * @param mazeWidth
+	 * @param sparcity
+	 * @param randomSeed
+	 * @param mode
+	 */
+	public Maze(int mazeHeight, int mazeWidth, int sparcity, long randomSeed, GenerationMode mode) {
+		this(mazeHeight, mazeWidth, sparcity, randomSeed, mode, DEFAULT_TILE_SIZE, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Construct a random maze the TILED way (see GenerationMode), with 
+	 * the tiles drawn in parallel on "pool".  The maze depends only on
+	 * the seed and the tile size, not on the number of threads.
+	 * 
+	 * @param mazeHeight
+	 * @param mazeWidth
+	 * @param sparcity
+	 * @param randomSeed
+	 * @param tileSize side of the tiles, in junctures; rounded up to a
+	 * multiple of 64
+	 * @param pool
+	 */
+	public Maze(int mazeHeight, int mazeWidth, int sparcity, long randomSeed, int tileSize, ForkJoinPool pool) {
+		this(mazeHeight, mazeWidth, sparcity, randomSeed, GenerationMode.TILED, tileSize, pool);
+	}
+
+	private Maze(int mazeHeight, int mazeWidth, int sparcity, long randomSeed, GenerationMode mode, int tileSize,
+			ForkJoinPool pool) {
+		if (tileSize < 1) {
+			throw new IllegalArgumentException("tile size must be positive");
+		}
 		random = new Random(randomSeed);
 		width = mazeWidth + 1;
 		height = mazeHeight + 1;
-		int currWall = 1;
-		horizontalWeights = new int[height - 2][width - 1];
-		verticalWeights = new int[height - 1][width - 2];
-		for (int i = 0; i < height - 2; i++) {
-			for (int j = 0; j < width - 1; j++) {
-				horizontalWeights[i][j] = random.nextInt(9) + 1;
+		layOut();
+		/* outside TILED mode, one WallDrawer numbers every post */
+		if (wordCount > Integer.MAX_VALUE 
+				|| mode != GenerationMode.TILED && (long) height * width > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("maze is too large to generate in memory");
+		}
+		words = new long[(int) wordCount];
+		if (mode == GenerationMode.TILED) {
+			SplittableRandom seeds = new SplittableRandom(randomSeed);
+			SplittableRandom seams = seeds.split();
+			Tiling tiling = new Tiling(tileSize, seeds);
+			pool.invoke(new TileJobs(tiling, 0, tiling.randoms.length));
+			drawOuterWall();
+			tiling.joinTiles(seams);
+		} else {
+			randomWeights(horizontalWeights, height - 2, width - 1);
+			randomWeights(verticalWeights, height - 1, width - 2);
+			drawOuterWall();
+			new WallDrawer(0, 0, height, width, random, null).draw(mode);
+		}
+		
+		/* Remove some walls if sparcity is > 0: width * height * 
+		 * sparcity / 50 of them, rounded up */
+		if (sparcity > 0) {
+			long removals = ((long) width * height * sparcity + 49) / 50;
+			for (long i = 0; i < removals; i++) {
+				int r = random.nextInt(height - 2) + 1;
+				int c = random.nextInt(width - 2) + 1;
+				if (random.nextBoolean() == false) {
+					setWall(wallDown, r, c, false);
+				} else {
+					setWall(WALL_TO_RIGHT, r, c, false);
+				}
 			}
 		}
-		for (int i = 0; i < height - 1; i++) {
-			for (int j = 0; j < width - 2; j++) {
-				verticalWeights[i][j] = random.nextInt(9) + 1;
+		store = new ArrayMazeStore(words);
+		words = null;
+		random = null;
+	}
+
+	/* A maze loaded from a file. */
+	private Maze(int mazeWidth, int mazeHeight) {
+		width = mazeWidth + 1;
+		height = mazeHeight + 1;
+		layOut();
+	}
+
+	/* Works out where each section of the words begins, and how many
+	 * words there are, from the width and height.
+	 */
+	private void layOut() {
+		rowWords = rowWords(width);
+		long wallWords = (long) height * rowWords;
+		wallDown = wallWords;
+		horizontalWeights = 2 * wallWords;
+		verticalWeights = horizontalWeights + weightWords(height - 2, width - 1);
+		wordCount = verticalWeights + weightWords(height - 1, width - 2);
+	}
+
+	/* Words in each row of walls, for a grid of posts "width" wide. */
+	static int rowWords(int width) {
+		return (width + 63) >>> 6;
+	}
 
+	/* Words in a section of rows x columns weights. */
+	static long weightWords(int rows, int columns) {
+		return (Math.max(0, (long) rows * columns) + 15) >>> 4;
+	}
+
+	/** Writes this maze in the binary maze format (see above), so that
+	 * it can be loaded again with read or map.
+	 * 
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(getMazeWidth());
+		out.writeInt(getMazeHeight());
+		out.writeLong(wordCount);
+		for (long i = 0; i < wordCount; i++) {
+			out.writeLong(store.getWord(i));
+		}
+	}
+
+	/** Reads a maze written by write onto the heap.
+	 * 
+	 * @param in
+	 * @return the maze
+	 * @throws IOException if the data is not a maze in a format this 
+	 * version can read
+	 */
+	public static Maze read(DataInputStream in) throws IOException {
+		Maze maze = readHeader(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readLong());
+		if (maze.wordCount > Integer.MAX_VALUE) {
+			throw new IOException("maze is too large to read into memory; map it instead");
+		}
+		long[] words = new long[(int) maze.wordCount];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = in.readLong();
+		}
+		maze.store = new ArrayMazeStore(words);
+		return maze;
+	}
+
+	/** Loads a maze written by write by mapping the file into memory.
+	 * Nothing is read until the maze is used, and then only the pages
+	 * used are, so even a maze larger than the heap loads at once; the
+	 * pages are shared with any other process that maps the same file.
+	 * The file must not be changed while the maze is in use.
+	 * 
+	 * @param file
+	 * @return the maze
+	 * @throws IOException if the file cannot be read, or is not a maze
+	 * in a format this version can read
+	 */
+	public static Maze map(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0) {
+					throw new IOException("not a maze file");
+				}
 			}
+			header.flip();
+			Maze maze = readHeader(header.getInt(), header.getInt(), header.getInt(), header.getInt(), 
+					header.getLong());
+			if (channel.size() < HEADER_BYTES + maze.wordCount * 8) {
+				throw new IOException("maze file is truncated");
+			}
+			maze.store = new MappedMazeStore(channel, HEADER_BYTES, maze.wordCount, SEGMENT_SHIFT);
+			return maze;
+		} finally {
+			channel.close();
+		}
+	}
+
+	/* Checks the header of a maze file, and creates the maze it 
+	 * describes, without its store.
+	 */
+	private static Maze readHeader(int magic, int version, int mazeWidth, int mazeHeight, long words) 
+			throws IOException {
+		if (magic != MAGIC) {
+			throw new IOException("not a maze file");
 		}
-		wallIndex = new int[height][width];
-		for (int i = 0; i < width; i++) {
-			wallIndex[0][i] = currWall;
-			wallIndex[height - 1][i] = currWall;
+		if (version != FORMAT_VERSION) {
+			throw new IOException("unsupported maze file version " + version);
 		}
-		for (int i = 0; i < height; i++) {
-			wallIndex[i][0] = currWall;
-			wallIndex[i][width - 1] = currWall;
+		if (mazeWidth < 1 || mazeHeight < 1 || mazeWidth == Integer.MAX_VALUE || mazeHeight == Integer.MAX_VALUE) {
+			throw new IOException("bad maze dimensions " + mazeWidth + " x " + mazeHeight);
 		}
-		wallToRight = new boolean[height][width];
-		wallDown = new boolean[height][width];
+		Maze maze = new Maze(mazeWidth, mazeHeight);
+		if (maze.wordCount != words) {
+			throw new IOException("maze file has " + words + " words, not " + maze.wordCount);
+		}
+		return maze;
+	}
+	
+	private void drawOuterWall() {
 		for (int i = 0; i < width - 1; i++) {
-			wallToRight[0][i] = true;
-			wallToRight[height - 1][i] = true;
+			setWall(WALL_TO_RIGHT, 0, i, true);
+			setWall(WALL_TO_RIGHT, height - 1, i, true);
 		}
 		for (int i = 0; i < height - 1; i++) {
-			wallDown[i][0] = true;
-			wallDown[i][width - 1] = true;
+			setWall(wallDown, i, 0, true);
+			setWall(wallDown, i, width - 1, true);
 		}
+	}
+
+	/* Draws the walls inside a rectangle of the grid of posts, "rows" 
+	 * by "columns" posts with its top left post at (top, left), starting
+	 * a new wall from each post not yet on a wall, in random order.  The
+	 * posts around the edge of the rectangle count as being on a wall
+	 * already, and the walls between them are left to the caller.  The
+	 * random numbers come from "random", or if that is null from 
+	 * "splittable".
+	 */
+	private class WallDrawer {
+		private final int top;
+		private final int left;
+		private final int rows;
+		private final int columns;
+		private final Random random;
+		private final SplittableRandom splittable;
+
+		/* The wall each post belongs to (0 if none yet), numbered 
+		 * row * columns + col. */
+		private final int[] wallIndex;
 
-		/* Draw the interior walls */
-		ArrayList<Juncture> points = new ArrayList<>();
-		for (int x = 1; x < width; x++) {
-			for (int y = 1; y < height; y++) {
-				points.add(new Juncture(x, y));
+		WallDrawer(int top, int left, int rows, int columns, Random random, SplittableRandom splittable) {
+			this.top = top;
+			this.left = left;
+			this.rows = rows;
+			this.columns = columns;
+			this.random = random;
+			this.splittable = splittable;
+			if ((long) rows * columns > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("maze is too large to generate in memory");
 			}
+			wallIndex = new int[rows * columns];
 		}
-		Collections.shuffle(points);
-		
-		while (points.size() > 0) {
-			Juncture p = points.remove(0);
-			int row = p.getY();
-			int col = p.getX();
-			if (wallIndex[row][col] == 0) {
-				currWall++;
-				wallIndex[row][col] = currWall;
-				drawFrom(row, col, currWall);
+
+		void draw(GenerationMode mode) {
+			int currWall = 1;
+			for (int i = 0; i < columns; i++) {
+				wallIndex[i] = currWall;
+				wallIndex[(rows - 1) * columns + i] = currWall;
+			}
+			for (int i = 0; i < rows; i++) {
+				wallIndex[i * columns] = currWall;
+				wallIndex[i * columns + columns - 1] = currWall;
+			}
+
+			/* The posts are numbered row * columns + col, listed column
+			 * by column, and shuffled the way Collections.shuffle would
+			 * shuffle them.
+			 */
+			int[] posts = new int[(columns - 1) * (rows - 1)];
+			int count = 0;
+			for (int x = 1; x < columns; x++) {
+				for (int y = 1; y < rows; y++) {
+					posts[count++] = y * columns + x;
+				}
+			}
+			for (int i = posts.length; i > 1; i--) {
+				int j = nextInt(i);
+				int swap = posts[i - 1];
+				posts[i - 1] = posts[j];
+				posts[j] = swap;
+			}
+			int[] worklist = new int[16];
+			for (int p : posts) {
+				int row = p / columns;
+				int col = p % columns;
+				if (wallIndex[p] == 0) {
+					currWall++;
+					wallIndex[p] = currWall;
+					if (mode == GenerationMode.CLASSIC) {
+						drawFrom(row, col, currWall);
+					} else {
+						worklist = drawFromWorklist(row, col, currWall, worklist);
+					}
+				}
 			}
 		}
-		
-		/* Remove some walls if sparcity is > 0 */
-		if (sparcity > 0) {
-			for (int i = 0; i < width * height * sparcity/50.0; i++) {
-				int r = random.nextInt(height - 2) + 1;
-				int c = random.nextInt(width - 2) + 1;
-				if (random.nextBoolean() == false) {
-					wallDown[r][c] = false;
-				} else {
-					wallToRight[r][c] = false;
+
+		private int nextInt(int bound) {
+			return random != null ? random.nextInt(bound) : splittable.nextInt(bound);
+		}
+
+		/* Extends the wall from the post at (row, col) one segment at a
+		 * time in random directions, until it reaches a post of another 
+		 * wall.  When the wall has closed itself in, it carries on from
+		 * a random post of the wall that is still free to grow.
+		 */
+		private void drawFrom(int row, int col, int currWall) {
+			while (true) {
+				if (!possibleToExtend(row, col, currWall)) {
+					int r;
+					int c;
+					do {
+						r = nextInt(rows);
+						c = nextInt(columns);
+					} while (wallIndex[r * columns + c] != currWall || !possibleToExtend(r, c, currWall));
+					row = r;
+					col = c;
+				}
+				int direction;
+				do {
+					direction = nextInt(4);
+				} while (wallIndex[(row + ROW_STEP[direction]) * columns + col + COLUMN_STEP[direction]] == currWall);
+				if (extend(row, col, direction, currWall)) {
+					return;
 				}
+				row += ROW_STEP[direction];
+				col += COLUMN_STEP[direction];
 			}
 		}
-	}
-	
-	private void drawFrom(int row, int col, int currWall) {
-		if (possibleToExtend(row, col, currWall)) {
-			while(true) {
-				int directionToTry = random.nextInt(4);
-				if (directionToTry == 0) {  // to right
-					int wallFound = wallIndex[row][col + 1];
-					if (wallFound != currWall) {
-						wallIndex[row][col + 1] = currWall;
-						wallToRight[row][col] = true;
-						if (wallFound == 0) {
-							drawFrom(row, col + 1, currWall);
-						}
-						return;
-					}
-				} else if (directionToTry == 1) {  // to left
-					int wallFound = wallIndex[row][col - 1];
-					if (wallFound != currWall) {
-						wallIndex[row][col - 1] = currWall;
-						wallToRight[row][col - 1] = true;
-						if (wallFound == 0) {
-							drawFrom(row, col - 1, currWall);
-						}
-						return;
-					}
-				} else if (directionToTry == 2) {  // up
-					int wallFound = wallIndex[row - 1][col];
-					if (wallFound != currWall) {
-						wallIndex[row - 1][col] = currWall;
-						wallDown[row - 1][col] = true;
-						if (wallFound == 0) {
-							drawFrom(row - 1, col, currWall);
-						}
-						return;
-					}
-				} else {  //down
-					int wallFound = wallIndex[row + 1][col];
-					if (wallFound != currWall) {
-						wallIndex[row + 1][col] = currWall;
-						wallDown[row][col] = true;
-						if (wallFound == 0) {
-							drawFrom(row + 1, col, currWall);
-						}
-						return;
+
+		/* Draws the same kind of wall as drawFrom, keeping the posts of
+		 * the wall in "worklist" (which is returned, as it may have 
+		 * grown) to restart from, and choosing only among the directions
+		 * that are open.
+		 */
+		private int[] drawFromWorklist(int row, int col, int currWall, int[] worklist) {
+			int size = 0;
+			worklist[size++] = row * columns + col;
+			int[] open = new int[4];
+			while (true) {
+				int choices = openDirections(row, col, currWall, open);
+				while (choices == 0) {
+					/* every post left in the worklist is on this wall, but
+					 * some may have been closed in since they were added */
+					int i = nextInt(size);
+					int p = worklist[i];
+					row = p / columns;
+					col = p % columns;
+					choices = openDirections(row, col, currWall, open);
+					if (choices == 0) {
+						worklist[i] = worklist[--size];
 					}
 				}
+				int direction = open[nextInt(choices)];
+				if (extend(row, col, direction, currWall)) {
+					return worklist;
+				}
+				row += ROW_STEP[direction];
+				col += COLUMN_STEP[direction];
+				if (size == worklist.length) {
+					worklist = Arrays.copyOf(worklist, size * 2);
+				}
+				worklist[size++] = row * columns + col;
 			}
-		} else {  // no current extension possible
-			while(true) {
-				int r = random.nextInt(height);
-				int c = random.nextInt(width);
-				if (wallIndex[r][c] == currWall && possibleToExtend(r, c, currWall)) {
-					drawFrom(r, c, currWall);
-					return;
+		}
+
+		/* Draws the segment from the post at (row, col) in the direction
+		 * given, and adds the post at its other end to the wall.  Returns
+		 * true if that post was already on another wall, which ends this
+		 * one.
+		 */
+		private boolean extend(int row, int col, int direction, int currWall) {
+			int nextRow = row + ROW_STEP[direction];
+			int nextCol = col + COLUMN_STEP[direction];
+			int wallFound = wallIndex[nextRow * columns + nextCol];
+			wallIndex[nextRow * columns + nextCol] = currWall;
+			row += top;
+			col += left;
+			if (direction == 0) {
+				setWall(WALL_TO_RIGHT, row, col, true);
+			} else if (direction == 1) {
+				setWall(WALL_TO_RIGHT, row, col - 1, true);
+			} else if (direction == 2) {
+				setWall(wallDown, row - 1, col, true);
+			} else {
+				setWall(wallDown, row, col, true);
+			}
+			return wallFound != 0;
+		}
+
+		/* Stores the directions in which the post at (row, col) can be 
+		 * extended in "open", and returns how many there are.
+		 */
+		private int openDirections(int row, int col, int currWall, int[] open) {
+			int count = 0;
+			for (int direction = 0; direction < 4; direction++) {
+				if (wallIndex[(row + ROW_STEP[direction]) * columns + col + COLUMN_STEP[direction]] != currWall) {
+					open[count++] = direction;
 				}
 			}
+			return count;
+		}
+
+		private boolean possibleToExtend(int row, int col, int currWall) {
+			if (wallIndex[row * columns + col + 1] != currWall) {
+				return true;
+			}
+			if (wallIndex[row * columns + col - 1] != currWall) {
+				return true;
+			}
+			if (wallIndex[(row + 1) * columns + col] != currWall) {
+				return true;
+			}
+			if (wallIndex[(row - 1) * columns + col] != currWall) {
+				return true;
+			}
+			return false;
 		}
 	}
-	
-	private boolean possibleToExtend(int row, int col, int currWall) {
-		if (wallIndex[row][col + 1] != currWall) {
-			return true;
+
+	/* How a TILED maze is divided up.  The tiles are squares of "side"
+	 * junctures (fewer along the right and bottom edges), and as "side"
+	 * is a multiple of 64, no two tiles write the same word of walls.
+	 * The jobs are the chunks of horizontal weights, the chunks of 
+	 * vertical weights, and then the tiles row by row, each with its own
+	 * random numbers, split off in that order.
+	 */
+	private class Tiling {
+		final int side;
+		final int tileRows;
+		final int tileColumns;
+		final long horizontalCount;
+		final long verticalCount;
+		final int horizontalChunks;
+		final int verticalChunks;
+		final SplittableRandom[] randoms;
+
+		Tiling(int tileSize, SplittableRandom seeds) {
+			side = (int) Math.min(1 << 30, (tileSize + 63L) & ~63L);
+			tileRows = (height - 2) / side + 1;
+			tileColumns = (width - 2) / side + 1;
+			horizontalCount = Math.max(0, (long) (height - 2) * (width - 1));
+			verticalCount = Math.max(0, (long) (height - 1) * (width - 2));
+			horizontalChunks = (int) ((horizontalCount + WEIGHT_CHUNK - 1) / WEIGHT_CHUNK);
+			verticalChunks = (int) ((verticalCount + WEIGHT_CHUNK - 1) / WEIGHT_CHUNK);
+			randoms = new SplittableRandom[horizontalChunks + verticalChunks + tileRows * tileColumns];
+			for (int i = 0; i < randoms.length; i++) {
+				randoms[i] = seeds.split();
+			}
 		}
-		if (wallIndex[row][col - 1] != currWall) {
-			return true;
+
+		void run(int job) {
+			SplittableRandom random = randoms[job];
+			if (job < horizontalChunks) {
+				long from = (long) job * WEIGHT_CHUNK;
+				randomWeights(horizontalWeights, from, Math.min(horizontalCount, from + WEIGHT_CHUNK), random);
+				return;
+			}
+			job -= horizontalChunks;
+			if (job < verticalChunks) {
+				long from = (long) job * WEIGHT_CHUNK;
+				randomWeights(verticalWeights, from, Math.min(verticalCount, from + WEIGHT_CHUNK), random);
+				return;
+			}
+			job -= verticalChunks;
+			int top = job / tileColumns * side;
+			int left = job % tileColumns * side;
+			int rows = Math.min(side, height - 1 - top) + 1;
+			int columns = Math.min(side, width - 1 - left) + 1;
+			new WallDrawer(top, left, rows, columns, null, random).draw(GenerationMode.WORKLIST);
 		}
-		if (wallIndex[row + 1][col] != currWall) {
-			return true;
+
+		/* Puts up the walls between the tiles, and then opens one 
+		 * segment of the wall between each pair of tiles joined by a 
+		 * random spanning tree of the tiles (Kruskal's algorithm over the
+		 * pairs in random order).  Each tile has one path between any
+		 * two of its junctures, so the whole maze then does too.
+		 */
+		void joinTiles(SplittableRandom random) {
+			for (int j = 1; j < tileColumns; j++) {
+				for (int r = 0; r < height - 1; r++) {
+					setWall(wallDown, r, j * side, true);
+				}
+			}
+			for (int i = 1; i < tileRows; i++) {
+				for (int c = 0; c < width - 1; c++) {
+					setWall(WALL_TO_RIGHT, i * side, c, true);
+				}
+			}
+			/* pair 2 * t joins tile t to the one on its right, and 
+			 * 2 * t + 1 to the one below */
+			int tiles = tileRows * tileColumns;
+			int[] pairs = new int[2 * tiles];
+			int count = 0;
+			for (int t = 0; t < tiles; t++) {
+				if (t % tileColumns < tileColumns - 1) {
+					pairs[count++] = 2 * t;
+				}
+				if (t / tileColumns < tileRows - 1) {
+					pairs[count++] = 2 * t + 1;
+				}
+			}
+			for (int i = count; i > 1; i--) {
+				int j = random.nextInt(i);
+				int swap = pairs[i - 1];
+				pairs[i - 1] = pairs[j];
+				pairs[j] = swap;
+			}
+			int[] sets = new int[tiles];
+			for (int t = 0; t < tiles; t++) {
+				sets[t] = t;
+			}
+			for (int i = 0; i < count; i++) {
+				int t = pairs[i] >>> 1;
+				boolean right = (pairs[i] & 1) == 0;
+				int a = find(sets, t);
+				int b = find(sets, right ? t + 1 : t + tileColumns);
+				if (a == b) {
+					continue;
+				}
+				sets[b] = a;
+				int top = t / tileColumns * side;
+				int left = t % tileColumns * side;
+				if (right) {
+					int r = top + random.nextInt(Math.min(side, height - 1 - top));
+					setWall(wallDown, r, left + side, false);
+				} else {
+					int c = left + random.nextInt(Math.min(side, width - 1 - left));
+					setWall(WALL_TO_RIGHT, top + side, c, false);
+				}
+			}
+		}
+	}
+
+	private static int find(int[] sets, int x) {
+		while (sets[x] != x) {
+			sets[x] = sets[sets[x]];
+			x = sets[x];
 		}
-		if (wallIndex[row - 1][col] != currWall) {
-			return true;
+		return x;
+	}
+
+	/* Runs the jobs [from, to) of a Tiling, splitting them in halves. */
+	private static class TileJobs extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Tiling tiling;
+		private final int from;
+		private final int to;
+
+		TileJobs(Tiling tiling, int from, int to) {
+			this.tiling = tiling;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				tiling.run(from);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			TileJobs first = new TileJobs(tiling, from, middle);
+			first.fork();
+			new TileJobs(tiling, middle, to).compute();
+			first.join();
+		}
+	}
+
+	/* Draws rows x columns random weights, row by row, into the 
+	 * section of the words that begins at "start".
+	 */
+	private void randomWeights(long start, int rows, int columns) {
+		long count = Math.max(0, (long) rows * columns);
+		for (long i = 0; i < count; i++) {
+			long weight = random.nextInt(MAX_WEIGHT - MIN_WEIGHT + 1) + MIN_WEIGHT;
+			words[(int) (start + (i >>> 4))] |= weight << ((i & 15) << 2);
+		}
+	}
+
+	/* Draws the weights numbered [from, to) of the section that begins
+	 * at "start"; "from" is a multiple of 16.
+	 */
+	private void randomWeights(long start, long from, long to, SplittableRandom random) {
+		for (long i = from; i < to; i++) {
+			long weight = random.nextInt(MAX_WEIGHT - MIN_WEIGHT + 1) + MIN_WEIGHT;
+			words[(int) (start + (i >>> 4))] |= weight << ((i & 15) << 2);
 		}
-		return false;
+	}
+
+	/* Reads the weight at (row, column) of a section of rows x columns
+	 * weights, throwing ArrayIndexOutOfBoundsException outside it, as
+	 * the arrays the weights used to be kept in did.
+	 */
+	private int weight(long start, int rows, int columns, int row, int column) {
+		if (row < 0 || row >= rows || column < 0 || column >= columns) {
+			throw new ArrayIndexOutOfBoundsException("no weight at row " + row + ", column " + column);
+		}
+		long i = (long) row * columns + column;
+		return (int) (store.getWord(start + (i >>> 4)) >>> ((i & 15) << 2)) & 15;
+	}
+
+	private boolean isWall(long start, int row, int col) {
+		if (row < 0 || row >= height || col < 0 || col >= width) {
+			throw new ArrayIndexOutOfBoundsException("no post at row " + row + ", column " + col);
+		}
+		return (store.getWord(start + (long) row * rowWords + (col >>> 6)) & (1L << col)) != 0;
+	}
+
+	/* Sets or clears a wall while the maze is being generated. */
+	private void setWall(long start, int row, int col, boolean wall) {
+		int i = (int) (start + (long) row * rowWords + (col >>> 6));
+		if (wall) {
+			words[i] |= 1L << col;
+		} else {
+			words[i] &= ~(1L << col);
+		}
+	}
+
+	/** Returns the number of bytes that hold the walls and weights of
+	 * this maze, on the heap or mapped from a file: about 2 bits and 8
+	 * bits per juncture.
+	 * 
+	 * @return bytes of wall and weight storage
+	 */
+	public long getStorageBytes() {
+		return 8 * wordCount;
 	}
 
 	/** Returns the width of this maze.  (This is the width
@@ -218,7 +771,17 @@ public class Maze {
 	 * @return true if there is a wall above this juncture
 	 */
 	public boolean isWallAbove(Juncture juncture) {
-		return wallToRight[juncture.getY()][juncture.getX()];
+		return isWallAbove(juncture.getX(), juncture.getY());
+	}
+
+	/** Returns true if there is a wall above the juncture at (x, y),
+	 * false otherwise.
+	 * @param x
+	 * @param y
+	 * @return true if there is a wall above this juncture
+	 */
+	public boolean isWallAbove(int x, int y) {
+		return isWall(WALL_TO_RIGHT, y, x);
 	}
 
 	/** Returns true if there is a wall below the given juncture,
@@ -227,7 +790,17 @@ public class Maze {
 	 * @return true if there is a wall below this juncture
 	 */
 	public boolean isWallBelow(Juncture juncture) {
-		return wallToRight[juncture.getY()+ 1][juncture.getX()];
+		return isWallBelow(juncture.getX(), juncture.getY());
+	}
+
+	/** Returns true if there is a wall below the juncture at (x, y),
+	 * false otherwise.
+	 * @param x
+	 * @param y
+	 * @return true if there is a wall below this juncture
+	 */
+	public boolean isWallBelow(int x, int y) {
+		return isWall(WALL_TO_RIGHT, y + 1, x);
 	}
 
 	/** Returns true if there is a wall to the left of the 
@@ -236,7 +809,17 @@ public class Maze {
 	 * @return true if there is a wall to the left of this juncture
 	 */
 	public boolean isWallToLeft(Juncture juncture) {
-		return wallDown[juncture.getY()][juncture.getX()];
+		return isWallToLeft(juncture.getX(), juncture.getY());
+	}
+
+	/** Returns true if there is a wall to the left of the 
+	 * juncture at (x, y), false otherwise.
+	 * @param x
+	 * @param y
+	 * @return true if there is a wall to the left of this juncture
+	 */
+	public boolean isWallToLeft(int x, int y) {
+		return isWall(wallDown, y, x);
 	}
 
 	/** Returns true if there is a wall to the right of the 
@@ -245,7 +828,17 @@ public class Maze {
 	 * @return true if there is a wall to the right of this juncture
 	 */
 	public boolean isWallToRight(Juncture juncture) {
-		return wallDown[juncture.getY()][juncture.getX() + 1];
+		return isWallToRight(juncture.getX(), juncture.getY());
+	}
+
+	/** Returns true if there is a wall to the right of the 
+	 * juncture at (x, y), false otherwise.
+	 * @param x
+	 * @param y
+	 * @return true if there is a wall to the right of this juncture
+	 */
+	public boolean isWallToRight(int x, int y) {
+		return isWall(wallDown, y, x + 1);
 	}
 
 	/** Returns the weight between this juncture and the one above.
@@ -254,7 +847,18 @@ public class Maze {
 	 * @return a positive integer
 	 */
 	public int getWeightAbove(Juncture juncture) {
-		return horizontalWeights[juncture.getY() - 1][juncture.getX()];
+		return getWeightAbove(juncture.getX(), juncture.getY());
+	}
+
+	/** Returns the weight between the juncture at (x, y) and the
+	 * one above.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return a positive integer
+	 */
+	public int getWeightAbove(int x, int y) {
+		return weight(horizontalWeights, height - 2, width - 1, y - 1, x);
 	}
 	
 	/** Returns the weight between this juncture and the one below.
@@ -263,7 +867,18 @@ public class Maze {
 	 * @return a positive integer
 	 */
 	public int getWeightBelow(Juncture juncture) {
-		return horizontalWeights[juncture.getY()][juncture.getX()];
+		return getWeightBelow(juncture.getX(), juncture.getY());
+	}
+
+	/** Returns the weight between the juncture at (x, y) and the
+	 * one below.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return a positive integer
+	 */
+	public int getWeightBelow(int x, int y) {
+		return weight(horizontalWeights, height - 2, width - 1, y, x);
 	}
 
 	/** Returns the weight between this juncture and the one to its
@@ -273,7 +888,18 @@ public class Maze {
 	 * @return a positive integer
 	 */
 	public int getWeightToLeft(Juncture juncture) {
-		return verticalWeights[juncture.getY()][juncture.getX() - 1];
+		return getWeightToLeft(juncture.getX(), juncture.getY());
+	}
+
+	/** Returns the weight between the juncture at (x, y) and the
+	 * one to its left.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return a positive integer
+	 */
+	public int getWeightToLeft(int x, int y) {
+		return weight(verticalWeights, height - 1, width - 2, y, x - 1);
 	}
 	
 	/** Returns the weight between this juncture and the one to its
@@ -283,6 +909,17 @@ public class Maze {
 	 * @return a positive integer
 	 */
 	public int getWeightToRight(Juncture juncture) {
-		return	verticalWeights[juncture.getY()][juncture.getX()];
+		return getWeightToRight(juncture.getX(), juncture.getY());
+	}
+
+	/** Returns the weight between the juncture at (x, y) and the
+	 * one to its right.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return a positive integer
+	 */
+	public int getWeightToRight(int x, int y) {
+		return weight(verticalWeights, height - 1, width - 2, y, x);
 	}
 }
@@ -24,6 +24,7 @@ import javax.swing.JSlider;
 import javax.swing.JCheckBox;
 import javax.swing.WindowConstants;
 
+import graph.Backpressure;
 import graph.GraphAlgorithmObserver;
 import graph.MazeGraph;
 
@@ -53,6 +54,7 @@ public class MazeGUI {
 	private JButton DFSButton;
 	private JButton BFSButton;
 	private JButton DijkstraButton;
+	private JButton AStarButton;
 	private JSlider speedSlider;
 	private JSlider densitySlider;
 	private JCheckBox showWeights;
@@ -81,6 +83,7 @@ public class MazeGUI {
 		heightLabel = new JLabel("Height");
 		drawButton = new JButton("New Maze");
 		DijkstraButton = new JButton("Dijkstra");
+		AStarButton = new JButton("A*");
 		densitySlider = new JSlider();
 		DFSButton = new JButton("DFS");
 		BFSButton = new JButton("BFS");
@@ -108,6 +111,20 @@ public class MazeGUI {
 			}
 		});
 
+		AStarButton.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent arg0) {
+				changeButtonStatus(false);
+				showWeights.setSelected(true);
+				Thread thread = new Thread(new Runnable() {
+					public void run() {
+						theGraph.DoAStar(new Juncture(0,0), new Juncture(maze.getMazeWidth() - 1, maze.getMazeHeight() - 1));
+					}
+				});
+				thread.start();
+			}
+		});
+
 		DFSButton.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
@@ -190,6 +207,7 @@ public class MazeGUI {
 		controlsPanel.add(DFSButton);
 		controlsPanel.add(BFSButton);
 		controlsPanel.add(DijkstraButton);
+		controlsPanel.add(AStarButton);
 		controlsPanel.add(new JLabel("   Speed"));
 		controlsPanel.add(speedSlider);
 
@@ -303,6 +321,7 @@ public class MazeGUI {
 		BFSButton.setEnabled(setting);
 		drawButton.setEnabled(setting);
 		DijkstraButton.setEnabled(setting);
+		AStarButton.setEnabled(setting);
 	}
 
 	private int getSliderDelayMS() {
@@ -324,7 +343,13 @@ public class MazeGUI {
 		maze = new Maze(height, width, 100 - densitySlider.getValue());
 		colorIndex = new int[height][width];
 		resetColorsOfSquares();
+		if (theGraph != null) {
+			theGraph.setSynchronousDispatch();
+		}
 		theGraph = new MazeGraph(maze);
+		/* the observer below sleeps to animate the search; let it do so 
+		 * on a thread of its own, a little behind the algorithm */
+		theGraph.setAsynchronousDispatch(Backpressure.BLOCK, 1024);
 		theGraph.addObserver(new GraphAlgorithmObserver<Juncture>() {
 			@Override
 			public void notifyBFSHasBegun() {
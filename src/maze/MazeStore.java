@@ -0,0 +1,15 @@
+package maze;
+
+/**
+ * <P>Holds the packed walls and weights of a Maze: a sequence of 64-bit
+ * words, numbered from 0, laid out as Maze describes.  The words may be
+ * in an array on the heap, or in a file mapped into memory.</P>
+ */
+interface MazeStore {
+
+	/* Returns the word at the given position. */
+	long getWord(long index);
+
+	/* Returns the number of words. */
+	long getWordCount();
+}
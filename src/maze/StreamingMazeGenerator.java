@@ -0,0 +1,289 @@
+package maze;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * <P>Generates a random maze one row of junctures at a time, writing it
+ * straight to a maze file (see Maze) that Maze.map can then load.  The
+ * maze is never held in memory: the generator keeps a few arrays as
+ * long as one row, and a small buffer for each section of the file, so
+ * it can produce mazes far larger than the heap, or the disk cache.</P>
+ *
+ * <P>The walls are drawn with Eller's algorithm.  Each juncture of the
+ * current row belongs to a set, the junctures already joined to it by
+ * the rows above.  Adjacent junctures of different sets are joined at
+ * random, then at least one juncture of each set, and any others at
+ * random, is joined to the juncture below it; the rest start new sets
+ * in the next row.  The last row joins every set that is left.  With a
+ * sparcity of 0 this gives a maze with exactly one path between any two
+ * junctures; higher values remove some of the other walls inside the
+ * maze, about as many as Maze removes.</P>
+ *
+ * <P>The same seed always gives the same file.  It is not the maze that
+ * a Maze constructed with that seed would have; the walls are drawn in
+ * a different way.</P>
+ */
+public class StreamingMazeGenerator {
+
+	/* Bytes buffered for each of the four sections of the file. */
+	private static final int BUFFER_BYTES = 1 << 20;
+
+	private final int mazeWidth;
+	private final int mazeHeight;
+	private final double removal;
+	private final SplittableRandom random;
+
+	/* Random bits not yet used by coin. */
+	private long bits;
+	private int bitCount;
+
+	/* The set each juncture of the current row belongs to, as a
+	 * union-find forest over the columns, and the forest for the next
+	 * row; the root of each column, how many columns of the row are
+	 * left in each set, and the first column of each set joined to the
+	 * next row (or -1).
+	 */
+	private int[] sets;
+	private int[] nextSets;
+	private final int[] roots;
+	private final int[] remaining;
+	private final int[] below;
+
+	/* The row of posts being written, in each wall section. */
+	private final long[] wallToRight;
+	private final long[] wallDown;
+
+	private StreamingMazeGenerator(int mazeHeight, int mazeWidth, int sparcity, long seed) {
+		this.mazeWidth = mazeWidth;
+		this.mazeHeight = mazeHeight;
+		removal = sparcity > 0 ? 1 - Math.exp(-sparcity / 100.0) : 0;
+		random = new SplittableRandom(seed);
+		sets = new int[mazeWidth];
+		nextSets = new int[mazeWidth];
+		roots = new int[mazeWidth];
+		remaining = new int[mazeWidth];
+		below = new int[mazeWidth];
+		wallToRight = new long[Maze.rowWords(mazeWidth + 1)];
+		wallDown = new long[wallToRight.length];
+	}
+
+	/**
+	 * Generates a random maze and writes it to "file", replacing
+	 * anything that was there.
+	 *
+	 * @param mazeHeight
+	 * @param mazeWidth
+	 * @param sparcity value from 0 to 100; 0 gives exactly one path from
+	 * any juncture to any other juncture, and higher values fewer walls
+	 * @param randomSeed
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void generate(int mazeHeight, int mazeWidth, int sparcity, long randomSeed, Path file)
+			throws IOException {
+		if (mazeWidth < 1 || mazeHeight < 1 || mazeWidth == Integer.MAX_VALUE || mazeHeight == Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("bad maze dimensions " + mazeWidth + " x " + mazeHeight);
+		}
+		new StreamingMazeGenerator(mazeHeight, mazeWidth, sparcity, randomSeed).write(file);
+	}
+
+	private void write(Path file) throws IOException {
+		int width = mazeWidth + 1;
+		int height = mazeHeight + 1;
+		long wallWords = (long) height * wallToRight.length;
+		long horizontalWeights = 2 * wallWords;
+		long verticalWeights = horizontalWeights + Maze.weightWords(height - 2, width - 1);
+		long wordCount = verticalWeights + Maze.weightWords(height - 1, width - 2);
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(Maze.HEADER_BYTES);
+			header.putInt(Maze.MAGIC).putInt(Maze.FORMAT_VERSION).putInt(mazeWidth).putInt(mazeHeight)
+					.putLong(wordCount).flip();
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+			Section rightSection = new Section(channel, 0);
+			Section downSection = new Section(channel, wallWords);
+			Section horizontalSection = new Section(channel, horizontalWeights);
+			Section verticalSection = new Section(channel, verticalWeights);
+			for (int x = 0; x < mazeWidth; x++) {
+				sets[x] = x;
+				remaining[x] = 0;
+				below[x] = -1;
+			}
+			fill(wallToRight, mazeWidth);
+			rightSection.putRow(wallToRight);
+			for (int y = 0; y < mazeHeight; y++) {
+				for (int x = 0; x < mazeWidth - 1; x++) {
+					verticalSection.putWeight(randomWeight());
+				}
+				if (y < mazeHeight - 1) {
+					for (int x = 0; x < mazeWidth; x++) {
+						horizontalSection.putWeight(randomWeight());
+					}
+				}
+				drawRow(y == mazeHeight - 1);
+				downSection.putRow(wallDown);
+				rightSection.putRow(wallToRight);
+			}
+			/* the posts along the bottom have no walls down */
+			fill(wallDown, 0);
+			downSection.putRow(wallDown);
+			rightSection.flush();
+			downSection.flush();
+			horizontalSection.flush();
+			verticalSection.flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/* Draws the walls between the junctures of one row, into the row of
+	 * wallDown posts on the row, and the walls below it, into the row of
+	 * wallToRight posts below.
+	 */
+	private void drawRow(boolean last) {
+		fill(wallDown, 0);
+		wallDown[0] |= 1;
+		wallDown[mazeWidth >>> 6] |= 1L << mazeWidth;
+		int a = find(0);
+		for (int x = 0; x < mazeWidth - 1; x++) {
+			/* a is the set of column x, and b that of the next */
+			int b = find(x + 1);
+			if (a != b && (last || coin())) {
+				sets[b] = a;
+			} else {
+				if (!remove()) {
+					wallDown[(x + 1) >>> 6] |= 1L << (x + 1);
+				}
+				a = b;
+			}
+		}
+		if (last) {
+			fill(wallToRight, mazeWidth);
+			return;
+		}
+		fill(wallToRight, 0);
+		for (int x = 0; x < mazeWidth; x++) {
+			int root = find(x);
+			roots[x] = root;
+			remaining[root]++;
+		}
+		for (int x = 0; x < mazeWidth; x++) {
+			int root = roots[x];
+			remaining[root]--;
+			if (coin() || (remaining[root] == 0 && below[root] < 0)) {
+				if (below[root] < 0) {
+					below[root] = x;
+				}
+				nextSets[x] = below[root];
+			} else {
+				nextSets[x] = x;
+				if (!remove()) {
+					wallToRight[x >>> 6] |= 1L << x;
+				}
+			}
+		}
+		for (int x = 0; x < mazeWidth; x++) {
+			below[roots[x]] = -1;
+		}
+		int[] swap = sets;
+		sets = nextSets;
+		nextSets = swap;
+	}
+
+	private int find(int x) {
+		while (sets[x] != x) {
+			sets[x] = sets[sets[x]];
+			x = sets[x];
+		}
+		return x;
+	}
+
+	private boolean coin() {
+		if (bitCount == 0) {
+			bits = random.nextLong();
+			bitCount = 64;
+		}
+		bitCount--;
+		boolean heads = (bits & 1) != 0;
+		bits >>>= 1;
+		return heads;
+	}
+
+	/* Whether to leave out a wall inside the maze. */
+	private boolean remove() {
+		return removal > 0 && random.nextDouble() < removal;
+	}
+
+	private int randomWeight() {
+		return random.nextInt(Maze.MAX_WEIGHT - Maze.MIN_WEIGHT + 1) + Maze.MIN_WEIGHT;
+	}
+
+	/* Clears a row of walls, and sets the first "count" of them. */
+	private static void fill(long[] row, int count) {
+		for (int i = 0; i < row.length; i++) {
+			int set = Math.max(0, Math.min(64, count - 64 * i));
+			row[i] = set == 64 ? -1L : (1L << set) - 1;
+		}
+	}
+
+	/* A section of the file, written in order through a buffer. */
+	private static class Section {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+		private long position;
+		private long weights;
+		private int weightCount;
+
+		Section(FileChannel channel, long start) {
+			this.channel = channel;
+			position = Maze.HEADER_BYTES + 8 * start;
+		}
+
+		void putWord(long word) throws IOException {
+			if (!buffer.hasRemaining()) {
+				drain();
+			}
+			buffer.putLong(word);
+		}
+
+		void putRow(long[] row) throws IOException {
+			for (long word : row) {
+				putWord(word);
+			}
+		}
+
+		void putWeight(int weight) throws IOException {
+			weights |= (long) weight << (weightCount << 2);
+			if (++weightCount == 16) {
+				putWord(weights);
+				weights = 0;
+				weightCount = 0;
+			}
+		}
+
+		void flush() throws IOException {
+			if (weightCount > 0) {
+				putWord(weights);
+				weights = 0;
+				weightCount = 0;
+			}
+			drain();
+		}
+
+		private void drain() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+			buffer.clear();
+		}
+	}
+}
@@ -0,0 +1,668 @@
+package tests;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import graph.CompactGraph;
+import graph.ContractionHierarchy;
+import graph.CorridorGraph;
+import graph.DeltaStepping;
+import graph.DijkstraMode;
+import graph.GraphAlgorithmObserver;
+import graph.GraphSearch;
+import graph.IndexedGraph;
+import graph.Landmarks;
+import graph.MazeGraph;
+import graph.MappedMazeGraph;
+import graph.MazeGridGraph;
+import graph.ParallelBreadthFirstSearch;
+import graph.QueryEngine;
+import graph.SearchResult;
+import graph.ShortestPaths;
+import graph.WeightedGraph;
+import maze.GenerationMode;
+import maze.Juncture;
+import maze.Maze;
+import maze.StreamingMazeGenerator;
+
+/**
+ * <P>Rough timings for the graph algorithms.  These are not tests;
+ * run the main method by hand and compare the numbers between
+ * versions on the same machine.</P>
+ * 
+ * <P>Each benchmark repeats its measurement a few times so that
+ * the later rounds show the speed after the JIT has warmed up.</P>
+ */
+public class Benchmarks {
+
+	private static final int ROUNDS = 5;
+
+	/* Builds a width x height grid with edges in both directions 
+	 * between neighboring junctures and random weights from 1 to 9,
+	 * like those of a Maze with no interior walls.
+	 */
+	static WeightedGraph<Juncture> randomGrid(int width, int height, long seed) {
+		Random random = new Random(seed);
+		WeightedGraph<Juncture> graph = new WeightedGraph<Juncture>();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				graph.addVertex(new Juncture(x, y));
+			}
+		}
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				Juncture junc = new Juncture(x, y);
+				if (x + 1 < width) {
+					int weight = random.nextInt(9) + 1;
+					graph.addEdge(junc, new Juncture(x + 1, y), weight);
+					graph.addEdge(new Juncture(x + 1, y), junc, weight);
+				}
+				if (y + 1 < height) {
+					int weight = random.nextInt(9) + 1;
+					graph.addEdge(junc, new Juncture(x, y + 1), weight);
+					graph.addEdge(new Juncture(x, y + 1), junc, weight);
+				}
+			}
+		}
+		return graph;
+	}
+
+	static void report(String name, long nanos) {
+		System.out.printf("%-40s %10.2f ms%n", name, nanos / 1e6);
+	}
+
+	/* Dial's bucket queue against the binary heap, on a full
+	 * single-source sweep.
+	 */
+	static void dijkstraQueues(int size) {
+		WeightedGraph<Juncture> graph = randomGrid(size, size, 1);
+		for (int round = 0; round < ROUNDS; round++) {
+			for (DijkstraMode mode : new DijkstraMode[] {DijkstraMode.BINARY_HEAP, DijkstraMode.BUCKET_QUEUE}) {
+				long start = System.nanoTime();
+				ShortestPaths.dijkstra(graph, 0, mode);
+				report("dijkstra " + size + "x" + size + " " + mode, System.nanoTime() - start);
+			}
+		}
+	}
+
+	/* Vertices finished by A* against a full Dijkstra sweep, for a
+	 * corner to corner query as MazeGUI makes.
+	 */
+	static void aStarPruning(int size) {
+		for (int sparcity : new int[] {0, 25, 50, 100}) {
+			MazeGraph graph = new MazeGraph(new Maze(size, size, sparcity, 1));
+			Juncture start = new Juncture(0, 0);
+			Juncture end = new Juncture(size - 1, size - 1);
+			for (int round = 0; round < ROUNDS; round++) {
+				long begin = System.nanoTime();
+				int dijkstraSettled = ShortestPaths.dijkstra(graph, graph.getVertexId(start)).getSettledCount();
+				long middle = System.nanoTime();
+				int aStarSettled = graph.DoAStar(start, end).getVisitedCount();
+				long finish = System.nanoTime();
+				if (round == ROUNDS - 1) {
+					report("dijkstra sparcity " + sparcity + " settled " + dijkstraSettled, middle - begin);
+					report("A* sparcity " + sparcity + " settled " + aStarSettled, finish - middle);
+				}
+			}
+		}
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/* Memory used by the object graph against its CSR snapshot, and
+	 * the speed of the three traversals over each.
+	 */
+	static void compactSnapshot(int size) {
+		long before = usedMemory();
+		WeightedGraph<Juncture> graph = randomGrid(size, size, 1);
+		long objectBytes = usedMemory() - before;
+		CompactGraph<Juncture> snapshot = graph.freeze();
+		System.out.printf("object graph %,d bytes, snapshot arrays %,d bytes%n", objectBytes, 
+				snapshot.getFootprintBytes());
+		int end = graph.getVertexCount() - 1;
+		long edges = snapshot.getEdgeCount();
+		for (int round = 0; round < ROUNDS; round++) {
+			for (IndexedGraph<Juncture> g : Arrays.<IndexedGraph<Juncture>>asList(graph, snapshot)) {
+				String name = g == graph ? "objects" : "snapshot";
+				long start = System.nanoTime();
+				GraphSearch.breadthFirst(g, 0, end);
+				long bfs = System.nanoTime();
+				GraphSearch.depthFirst(g, 0, end);
+				long dfs = System.nanoTime();
+				ShortestPaths.dijkstra(g, 0);
+				long dijkstra = System.nanoTime();
+				System.out.printf("%-8s BFS %6.1f  DFS %6.1f  Dijkstra %6.1f  million edges/s%n", name,
+						edges / ((bfs - start) / 1e3), edges / ((dfs - bfs) / 1e3), 
+						edges / ((dijkstra - dfs) / 1e3));
+			}
+		}
+	}
+
+	/* Time to get from a Maze to a finished Dijkstra sweep, through
+	 * a MazeGraph and through the implicit grid view.
+	 */
+	static void gridView(int size) {
+		Maze maze = new Maze(size, size, 10, 1);
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			MazeGraph graph = new MazeGraph(maze);
+			long built = System.nanoTime();
+			ShortestPaths.dijkstra(graph, 0);
+			long swept = System.nanoTime();
+			report("MazeGraph build", built - start);
+			report("MazeGraph dijkstra", swept - built);
+			start = System.nanoTime();
+			MazeGridGraph view = new MazeGridGraph(maze);
+			ShortestPaths.dijkstra(view, 0);
+			report("MazeGridGraph build + dijkstra", System.nanoTime() - start);
+		}
+	}
+
+	/* Delta-stepping with 1 to 16 threads, against the sequential
+	 * bucket-queue Dijkstra.  The speedup is limited by the number of
+	 * cores of the machine it runs on.
+	 */
+	static void deltaStepping(int size) {
+		CompactGraph<Juncture> graph = randomGrid(size, size, 1).freeze();
+		int delta = DeltaStepping.chooseDelta(graph);
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			ShortestPaths.dijkstra(graph, 0);
+			long sequential = System.nanoTime() - start;
+			report("sequential dijkstra", sequential);
+			for (int threads = 1; threads <= 16; threads *= 2) {
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				start = System.nanoTime();
+				new DeltaStepping(pool, delta).run(graph, 0);
+				long parallel = System.nanoTime() - start;
+				report(String.format("delta-stepping %2d threads (x%.2f)", threads, 
+						(double) sequential / parallel), parallel);
+				pool.shutdown();
+			}
+		}
+	}
+
+	/* Edges traversed per second by a full BFS: DoBFS on the object
+	 * graph, the sequential search on a snapshot, and the parallel 
+	 * direction-optimizing search on the same snapshot.
+	 */
+	static void parallelBFS(int size) {
+		WeightedGraph<Juncture> graph = randomGrid(size, size, 1);
+		CompactGraph<Juncture> snapshot = graph.freeze();
+		double edges = snapshot.getEdgeCount();
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			graph.DoBFS(new Juncture(0, 0), new Juncture(-1, -1));
+			long doBFS = System.nanoTime() - start;
+			start = System.nanoTime();
+			GraphSearch.breadthFirst(snapshot, 0, -1);
+			long sequential = System.nanoTime() - start;
+			System.out.printf("DoBFS %6.1f  sequential %6.1f  million edges/s%n", edges / (doBFS / 1e3), 
+					edges / (sequential / 1e3));
+			for (int threads = 1; threads <= 16; threads *= 2) {
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				start = System.nanoTime();
+				new ParallelBreadthFirstSearch(pool).run(snapshot, snapshot, 0);
+				long parallel = System.nanoTime() - start;
+				System.out.printf("parallel %2d threads %6.1f  million edges/s%n", threads, edges / (parallel / 1e3));
+				pool.shutdown();
+			}
+		}
+	}
+
+	/* Finished vertices and time per query for DoDijsktra, A* with the
+	 * Manhattan estimate, and A* with 8 landmarks, on size x size mazes
+	 * from perfect (sparcity 0) to wide open (100).
+	 */
+	static void altLandmarks(int size) {
+		int queries = 200;
+		for (int sparcity : new int[] {0, 25, 50, 75, 100}) {
+			MazeGraph graph = new MazeGraph(new Maze(size, size, sparcity, 1));
+			Random random = new Random(1);
+			Juncture[][] pairs = new Juncture[queries][];
+			for (int q = 0; q < queries; q++) {
+				pairs[q] = new Juncture[] {new Juncture(random.nextInt(size), random.nextInt(size)), 
+						new Juncture(random.nextInt(size), random.nextInt(size))};
+			}
+			long begin = System.nanoTime();
+			Landmarks landmarks = graph.preprocessLandmarks(8);
+			long preprocess = System.nanoTime() - begin;
+			for (int round = 0; round < ROUNDS; round++) {
+				long[] settled = new long[3];
+				long[] nanos = new long[3];
+				for (int q = 0; q < queries; q++) {
+					graph.setLandmarks(null);
+					SearchResult<Juncture> dijkstra = graph.DoDijsktra(pairs[q][0], pairs[q][1]);
+					SearchResult<Juncture> manhattan = graph.queryAStar(pairs[q][0], pairs[q][1]);
+					graph.setLandmarks(landmarks);
+					SearchResult<Juncture> alt = graph.queryAStar(pairs[q][0], pairs[q][1]);
+					int i = 0;
+					for (SearchResult<Juncture> result : Arrays.asList(dijkstra, manhattan, alt)) {
+						settled[i] += result.getVisitedCount();
+						nanos[i++] += result.getElapsedNanos();
+					}
+				}
+				if (round == ROUNDS - 1) {
+					System.out.printf("sparcity %3d  landmarks %6.1f ms %6d KB%n", sparcity, preprocess / 1e6, 
+							landmarks.getFootprintBytes() / 1024);
+					String[] names = {"DoDijsktra", "A* manhattan", "A* landmarks"};
+					for (int i = 0; i < 3; i++) {
+						System.out.printf("  %-14s %8d settled %8.3f ms per query%n", names[i], 
+								settled[i] / queries, nanos[i] / 1e6 / queries);
+					}
+				}
+			}
+		}
+	}
+
+	/* Preparation time and shortcuts of a contraction hierarchy, and 
+	 * finished vertices and time per query against queryDijkstra and 
+	 * A* with landmarks, on size x size mazes.
+	 */
+	static void contractionHierarchy(int size) {
+		int queries = 200;
+		for (int sparcity : new int[] {0, 25, 50, 75, 100}) {
+			MazeGraph graph = new MazeGraph(new Maze(size, size, sparcity, 1));
+			Random random = new Random(1);
+			Juncture[][] pairs = new Juncture[queries][];
+			for (int q = 0; q < queries; q++) {
+				pairs[q] = new Juncture[] {new Juncture(random.nextInt(size), random.nextInt(size)), 
+						new Juncture(random.nextInt(size), random.nextInt(size))};
+			}
+			long begin = System.nanoTime();
+			ContractionHierarchy<Juncture> hierarchy = ContractionHierarchy.build(graph);
+			long preprocess = System.nanoTime() - begin;
+			graph.preprocessLandmarks(8);
+			for (int round = 0; round < ROUNDS; round++) {
+				long[] settled = new long[3];
+				long[] nanos = new long[3];
+				for (int q = 0; q < queries; q++) {
+					SearchResult<Juncture> dijkstra = graph.queryDijkstra(pairs[q][0], pairs[q][1]);
+					SearchResult<Juncture> alt = graph.queryAStar(pairs[q][0], pairs[q][1]);
+					SearchResult<Juncture> ch = hierarchy.shortestPath(pairs[q][0], pairs[q][1]);
+					int i = 0;
+					for (SearchResult<Juncture> result : Arrays.asList(dijkstra, alt, ch)) {
+						settled[i] += result.getVisitedCount();
+						nanos[i++] += result.getElapsedNanos();
+					}
+				}
+				if (round == ROUNDS - 1) {
+					System.out.printf("sparcity %3d  hierarchy %7.1f ms %8d shortcuts%n", sparcity, 
+							preprocess / 1e6, hierarchy.getShortcutCount());
+					String[] names = {"queryDijkstra", "A* landmarks", "hierarchy"};
+					for (int i = 0; i < 3; i++) {
+						System.out.printf("  %-14s %8d settled %8.3f ms per query%n", names[i], 
+								settled[i] / queries, nanos[i] / 1e6 / queries);
+					}
+				}
+			}
+		}
+	}
+
+	/* How much corridor compression shrinks size x size mazes, and how
+	 * much faster Dijkstra's algorithm runs on the result: a full tree
+	 * from one vertex, and point queries (early exit) against a 
+	 * QueryEngine on the maze itself.
+	 */
+	static void corridorCompression(int size) {
+		int queries = 200;
+		for (int sparcity : new int[] {0, 10, 25, 50, 100}) {
+			MazeGraph graph = new MazeGraph(new Maze(size, size, sparcity, 1));
+			QueryEngine<Juncture> engine = new QueryEngine<Juncture>(graph);
+			Random random = new Random(1);
+			int[][] pairs = new int[queries][];
+			for (int q = 0; q < queries; q++) {
+				pairs[q] = new int[] {random.nextInt(size * size), random.nextInt(size * size)};
+			}
+			for (int round = 0; round < ROUNDS; round++) {
+				long begin = System.nanoTime();
+				CorridorGraph<Juncture> corridors = graph.compressCorridors();
+				long build = System.nanoTime() - begin;
+				begin = System.nanoTime();
+				ShortestPaths.dijkstra(graph, 0);
+				long fullTree = System.nanoTime() - begin;
+				begin = System.nanoTime();
+				ShortestPaths.dijkstra(corridors, 0);
+				long compressedTree = System.nanoTime() - begin;
+				long plain = 0;
+				long compressed = 0;
+				for (int[] pair : pairs) {
+					plain += engine.shortestPath(pair[0], pair[1]).getElapsedNanos();
+					compressed += corridors.shortestPath(pair[0], pair[1]).getElapsedNanos();
+				}
+				if (round == ROUNDS - 1) {
+					System.out.printf("sparcity %3d  %6d -> %6d vertices (%4.2f)  %6d -> %6d edges  "
+							+ "build %6.1f ms%n", sparcity, graph.getVertexCount(), corridors.getVertexCount(), 
+							corridors.getVertexCount() / (double) graph.getVertexCount(), countEdges(graph), 
+							corridors.getEdgeCount(), build / 1e6);
+					System.out.printf("  full tree %7.2f -> %7.2f ms (%4.1fx)  query %6.3f -> %6.3f ms (%4.1fx)%n", 
+							fullTree / 1e6, compressedTree / 1e6, fullTree / (double) compressedTree, 
+							plain / 1e6 / queries, compressed / 1e6 / queries, plain / (double) compressed);
+				}
+			}
+		}
+	}
+
+	private static int countEdges(IndexedGraph<?> graph) {
+		int edges = 0;
+		for (int id = 0; id < graph.getVertexCount(); id++) {
+			for (int i = 0; i < graph.getDegree(id); i++) {
+				if (graph.getNeighbor(id, i) >= 0) {
+					edges++;
+				}
+			}
+		}
+		return edges;
+	}
+
+	/* Time to generate size x size perfect mazes with WORKLIST, for
+	 * each size given, and with CLASSIC for those up to classicLimit. 
+	 * A 10000 x 10000 maze needs about 1.5 GB of heap while it is built.
+	 */
+	static void mazeGeneration(int classicLimit, int... sizes) {
+		for (int size : sizes) {
+			for (GenerationMode mode : GenerationMode.values()) {
+				if (mode == GenerationMode.CLASSIC && size > classicLimit) {
+					continue;
+				}
+				long begin = System.nanoTime();
+				Maze maze = new Maze(size, size, 0, 1, mode);
+				long nanos = System.nanoTime() - begin;
+				System.out.printf("%5d x %-5d %-8s %9.1f ms %6.1f ns per juncture %8.1f MB kept%n", 
+						maze.getMazeWidth(), maze.getMazeHeight(), mode, nanos / 1e6, nanos / ((double) size * size), 
+						maze.getStorageBytes() / 1e6);
+			}
+		}
+	}
+
+	/* Time to generate a size x size TILED maze on pools of 1, 2, 4, ...
+	 * threads, up to at least as many as there are processors, against
+	 * one thread, and a check that every pool draws the same maze.
+	 */
+	static void tiledMazeGeneration(int size) {
+		int processors = Runtime.getRuntime().availableProcessors();
+		new Maze(500, 500, 0, 1, Maze.DEFAULT_TILE_SIZE, ForkJoinPool.commonPool());
+		long single = 0;
+		long expected = 0;
+		for (int t = 1; t < 2 * Math.max(4, processors); t *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(t);
+			try {
+				long best = Long.MAX_VALUE;
+				Maze maze = null;
+				for (int round = 0; round < 3; round++) {
+					long begin = System.nanoTime();
+					maze = new Maze(size, size, 0, 1, Maze.DEFAULT_TILE_SIZE, pool);
+					best = Math.min(best, System.nanoTime() - begin);
+				}
+				long hash = 0;
+				for (int y = 0; y < size; y++) {
+					for (int x = 0; x < size; x++) {
+						hash = hash * 31 + (maze.isWallBelow(x, y) ? 1 : 0) + (maze.isWallToRight(x, y) ? 2 : 0);
+					}
+				}
+				if (t == 1) {
+					single = best;
+					expected = hash;
+				}
+				System.out.printf("%d x %d TILED, %2d threads %9.1f ms (%4.2fx)%s%n", size, size, t, best / 1e6,
+						(double) single / best, hash == expected ? "" : "  DIFFERENT MAZE");
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	/* Saving a size x size maze, loading it back by reading and by
+	 * mapping, and Dijkstra's algorithm over each copy (through a 
+	 * MazeGridGraph, which reads the walls and weights as it goes).
+	 */
+	static void mazeFile(int size) throws IOException {
+		Maze maze = new Maze(size, size, 10, 1);
+		Path file = Files.createTempFile("maze", ".bin");
+		try {
+			for (int round = 0; round < ROUNDS; round++) {
+				long begin = System.nanoTime();
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+				maze.write(out);
+				out.close();
+				long write = System.nanoTime() - begin;
+				begin = System.nanoTime();
+				DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+				Maze read = Maze.read(in);
+				in.close();
+				long readTime = System.nanoTime() - begin;
+				begin = System.nanoTime();
+				Maze mapped = Maze.map(file);
+				long map = System.nanoTime() - begin;
+				begin = System.nanoTime();
+				ShortestPaths.dijkstra(new MazeGridGraph(read), 0);
+				long onHeap = System.nanoTime() - begin;
+				begin = System.nanoTime();
+				ShortestPaths.dijkstra(new MazeGridGraph(mapped), 0);
+				long onMap = System.nanoTime() - begin;
+				if (round == ROUNDS - 1) {
+					System.out.printf("%d x %d maze, %.1f MB file%n", size, size, Files.size(file) / 1e6);
+					System.out.printf("  write %8.1f ms  read %8.1f ms  map %6.2f ms%n", write / 1e6, readTime / 1e6, 
+							map / 1e6);
+					System.out.printf("  dijkstra on heap %8.1f ms  mapped %8.1f ms%n", onHeap / 1e6, onMap / 1e6);
+				}
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/* Startup: building a MazeGraph from a size x size maze, against
+	 * opening a snapshot of it written earlier, and the first full 
+	 * Dijkstra run on each.
+	 */
+	static void graphSnapshot(int size) throws IOException {
+		Maze maze = new Maze(size, size, 10, 1);
+		Path file = Files.createTempFile("graph", ".csr");
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+			MappedMazeGraph.write(new MazeGraph(maze), out);
+			out.close();
+			for (int round = 0; round < ROUNDS; round++) {
+				long begin = System.nanoTime();
+				MazeGraph graph = new MazeGraph(maze);
+				long build = System.nanoTime() - begin;
+				begin = System.nanoTime();
+				ShortestPaths.dijkstra(graph, 0);
+				long onObjects = System.nanoTime() - begin;
+				graph = null;
+				begin = System.nanoTime();
+				MappedMazeGraph mapped = MappedMazeGraph.open(file);
+				long open = System.nanoTime() - begin;
+				begin = System.nanoTime();
+				ShortestPaths.dijkstra(mapped, 0);
+				long onMapped = System.nanoTime() - begin;
+				if (round == ROUNDS - 1) {
+					System.out.printf("%d x %d maze, %.1f MB snapshot%n", size, size, Files.size(file) / 1e6);
+					System.out.printf("  new MazeGraph %8.1f ms  then dijkstra %8.1f ms%n", build / 1e6, onObjects / 1e6);
+					System.out.printf("  open snapshot %8.2f ms  then dijkstra %8.1f ms%n", open / 1e6, onMapped / 1e6);
+				}
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/* Generating size x size mazes straight to a file, row by row, in
+	 * cells (junctures) per second; the heap in use stays the same
+	 * whatever the size.
+	 */
+	static void streamingMazeGeneration(int... sizes) throws IOException {
+		Path file = Files.createTempFile("maze", ".bin");
+		try {
+			StreamingMazeGenerator.generate(500, 500, 0, 1, file);
+			for (int size : sizes) {
+				System.gc();
+				long begin = System.nanoTime();
+				StreamingMazeGenerator.generate(size, size, 0, 1, file);
+				long nanos = System.nanoTime() - begin;
+				Runtime runtime = Runtime.getRuntime();
+				System.out.printf("%d x %d maze streamed: %8.1f ms, %6.1f M cells/s, %8.1f MB file, %5.1f MB heap%n",
+						size, size, nanos / 1e6, (double) size * size * 1e3 / nanos, Files.size(file) / 1e6,
+						(runtime.totalMemory() - runtime.freeMemory()) / 1e6);
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/* Does nothing, but makes the graph report every event. */
+	static class IdleObserver<V> implements GraphAlgorithmObserver<V> {
+		public void notifyDFSHasBegun() { }
+		public void notifyBFSHasBegun() { }
+		public void notifyVisit(V vertex) { }
+		public void notifySearchIsOver() { }
+		public void notifyDijkstraHasBegun() { }
+		public void notifyDijkstraVertexFinished(V vertex, Integer cost) { }
+		public void notifyDijkstraIsOver(List<V> path) { }
+	}
+
+	/* The Do methods with no observers, where the algorithms skip 
+	 * reporting altogether, against the same calls with one observer
+	 * that ignores what it is told.  (This stands in for a JMH 
+	 * benchmark, which the project has no build to run.)
+	 */
+	static void observerOverhead(int size) {
+		WeightedGraph<Juncture> quiet = randomGrid(size, size, 1);
+		WeightedGraph<Juncture> watched = randomGrid(size, size, 1);
+		watched.addObserver(new IdleObserver<Juncture>());
+		Juncture start = new Juncture(0, 0);
+		Juncture end = new Juncture(size - 1, size - 1);
+		for (int round = 0; round < ROUNDS; round++) {
+			long[] times = new long[6];
+			int i = 0;
+			for (WeightedGraph<Juncture> graph : Arrays.asList(quiet, watched)) {
+				long begin = System.nanoTime();
+				graph.DoBFS(start, end);
+				long afterBFS = System.nanoTime();
+				graph.DoDFS(start, end);
+				long afterDFS = System.nanoTime();
+				graph.DoDijsktra(start, end);
+				long afterDijkstra = System.nanoTime();
+				times[i++] = afterBFS - begin;
+				times[i++] = afterDFS - afterBFS;
+				times[i++] = afterDijkstra - afterDFS;
+			}
+			if (round == ROUNDS - 1) {
+				report("DoBFS no observers", times[0]);
+				report("DoBFS idle observer", times[3]);
+				report("DoDFS no observers", times[1]);
+				report("DoDFS idle observer", times[4]);
+				report("DoDijsktra no observers", times[2]);
+				report("DoDijsktra idle observer", times[5]);
+			}
+		}
+	}
+
+	/* Creates an executor that starts a virtual thread per task, or 
+	 * returns null on a JVM without virtual threads.  (Looked up by 
+	 * reflection, since the project is compiled for Java 8.)
+	 */
+	static ExecutorService virtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	/* Queries per second and latency percentiles of a QueryEngine on a
+	 * size x size maze, with "clients" threads each sending queries one
+	 * after another, on platform threads and (if the JVM has them) on
+	 * virtual threads.
+	 */
+	static void queryLoad(int size) throws Exception {
+		Maze maze = new Maze(size, size, 30, 1);
+		final QueryEngine<Juncture> engine = new QueryEngine<Juncture>(new MazeGraph(maze).freeze());
+		final int queries = 4000;
+		final int[][] pairs = new int[queries][2];
+		Random random = new Random(1);
+		for (int[] pair : pairs) {
+			pair[0] = random.nextInt(size * size);
+			pair[1] = random.nextInt(size * size);
+		}
+		for (int clients : new int[] {1, 4, 16, 64}) {
+			ExecutorService[] executors = {Executors.newFixedThreadPool(clients), virtualThreadExecutor()};
+			String[] names = {"platform", "virtual"};
+			for (int e = 0; e < executors.length; e++) {
+				if (executors[e] == null) {
+					continue;
+				}
+				final long[] latencies = new long[queries];
+				for (int round = 0; round < ROUNDS; round++) {
+					List<Future<?>> done = new ArrayList<Future<?>>();
+					final int share = queries / clients;
+					long begin = System.nanoTime();
+					for (int c = 0; c < clients; c++) {
+						final int first = c * share;
+						done.add(executors[e].submit(new Runnable() {
+							public void run() {
+								for (int q = first; q < first + share; q++) {
+									long start = System.nanoTime();
+									engine.shortestPath(pairs[q][0], pairs[q][1]);
+									latencies[q] = System.nanoTime() - start;
+								}
+							}
+						}));
+					}
+					for (Future<?> future : done) {
+						future.get();
+					}
+					long elapsed = System.nanoTime() - begin;
+					if (round == ROUNDS - 1) {
+						long[] sorted = Arrays.copyOf(latencies, share * clients);
+						Arrays.sort(sorted);
+						System.out.printf("%-8s %3d clients %8.0f queries/s  p50 %7.3f ms  p99 %7.3f ms%n", 
+								names[e], clients, sorted.length / (elapsed / 1e9), 
+								sorted[sorted.length / 2] / 1e6, sorted[sorted.length * 99 / 100] / 1e6);
+					}
+				}
+				executors[e].shutdown();
+			}
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		dijkstraQueues(size);
+		aStarPruning(200);
+		compactSnapshot(size);
+		gridView(300);
+		deltaStepping(size);
+		parallelBFS(size);
+		observerOverhead(size);
+		queryLoad(200);
+		altLandmarks(150);
+		contractionHierarchy(150);
+		corridorCompression(200);
+		mazeGeneration(1000, 1000, 4000, 10000);
+		tiledMazeGeneration(4000);
+		mazeFile(2000);
+		graphSnapshot(1000);
+		streamingMazeGeneration(1000, 10000, 30000);
+	}
+}
@@ -0,0 +1,1313 @@
+package tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import graph.Backpressure;
+import graph.CompactGraph;
+import graph.ContractionHierarchy;
+import graph.CorridorGraph;
+import graph.DeltaStepping;
+import graph.DijkstraMode;
+import graph.GraphAlgorithmObserver;
+import graph.GraphSearch;
+import graph.Heuristic;
+import graph.IndexedGraph;
+import graph.Landmarks;
+import graph.MazeGraph;
+import graph.MappedMazeGraph;
+import graph.MazeGridGraph;
+import graph.ParallelBreadthFirstSearch;
+import graph.QueryEngine;
+import graph.SearchResult;
+import graph.ShortestPathTree;
+import graph.ShortestPathTreeCache;
+import graph.ShortestPaths;
+import graph.WeightedGraph;
+import maze.GenerationMode;
+import maze.Juncture;
+import maze.Maze;
+import maze.StreamingMazeGenerator;
+
+public class GraphTests {
+
+	/* Records every notification it receives, in order. */
+	static class RecordingObserver<V> implements GraphAlgorithmObserver<V> {
+		List<String> events = new ArrayList<String>();
+		List<V> path;
+
+		public void notifyDFSHasBegun() { events.add("DFS"); }
+		public void notifyBFSHasBegun() { events.add("BFS"); }
+		public void notifyVisit(V vertex) { events.add("visit " + vertex); }
+		public void notifySearchIsOver() { events.add("over"); }
+		public void notifyDijkstraHasBegun() { events.add("Dijkstra"); }
+		public void notifyDijkstraVertexFinished(V vertex, Integer cost) {
+			events.add(vertex + "=" + cost);
+		}
+		public void notifyDijkstraIsOver(List<V> path) { this.path = path; }
+	}
+
+	/* Records notifications, but holds up the first one until it is 
+	 * released. */
+	static class GatedObserver<V> extends RecordingObserver<V> {
+		CountDownLatch gate = new CountDownLatch(1);
+
+		public void notifyBFSHasBegun() {
+			awaitGate();
+			super.notifyBFSHasBegun();
+		}
+
+		public void notifyDijkstraHasBegun() {
+			awaitGate();
+			super.notifyDijkstraHasBegun();
+		}
+
+		private void awaitGate() {
+			try {
+				gate.await();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/* Opens the observer's gate once the graph has lost an event, 
+	 * which it can only do while the observer is held up. */
+	private static void openGateOnceLost(final WeightedGraph<?> graph, final GatedObserver<?> observer) {
+		new Thread(new Runnable() {
+			public void run() {
+				while (graph.getLostEventCount() == 0) {
+					Thread.yield();
+				}
+				observer.gate.countDown();
+			}
+		}).start();
+	}
+
+	/* The example graph from PublicTests.test1. */
+	private static WeightedGraph<String> buildExample() {
+		WeightedGraph<String> graph = new WeightedGraph<String>();
+		for (int i = 0; i <= 8; i++) {
+			graph.addVertex(String.valueOf(i));
+		}
+		int[][] edges = {{0, 1, 4}, {0, 7, 8}, {1, 2, 8}, {2, 3, 7}, {3, 4, 9}, {7, 8, 7},
+				{7, 6, 1}, {2, 8, 2}, {8, 6, 6}, {6, 5, 2}, {5, 4, 10}, {3, 5, 14}, {2, 5, 4}, {1, 7, 11}};
+		for (int[] e : edges) {
+			graph.addEdge(String.valueOf(e[0]), String.valueOf(e[1]), e[2]);
+		}
+		return graph;
+	}
+
+	/* Builds a width x height grid with edges in both directions
+	 * between neighboring junctures.
+	 */
+	private static WeightedGraph<Juncture> buildGrid(int width, int height) {
+		WeightedGraph<Juncture> graph = new WeightedGraph<Juncture>();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				graph.addVertex(new Juncture(x, y));
+			}
+		}
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				Juncture junc = new Juncture(x, y);
+				int weight = (x * 7 + y * 3) % 9 + 1;
+				if (x + 1 < width) {
+					graph.addEdge(junc, new Juncture(x + 1, y), weight);
+					graph.addEdge(new Juncture(x + 1, y), junc, weight);
+				}
+				if (y + 1 < height) {
+					graph.addEdge(junc, new Juncture(x, y + 1), weight);
+					graph.addEdge(new Juncture(x, y + 1), junc, weight);
+				}
+			}
+		}
+		return graph;
+	}
+
+	@Test(timeout = 30000)
+	public void testMillionVertexGridBuild() {
+		WeightedGraph<Juncture> graph = buildGrid(1000, 1000);
+		assertTrue(graph.containsVertex(new Juncture(999, 999)));
+		assertFalse(graph.containsVertex(new Juncture(1000, 999)));
+		assertEquals(Integer.valueOf(1), graph.getWeight(new Juncture(0, 0), new Juncture(1, 0)));
+		assertEquals(Integer.valueOf(1), graph.getWeight(new Juncture(1, 0), new Juncture(0, 0)));
+		assertNull(graph.getWeight(new Juncture(0, 0), new Juncture(1, 1)));
+	}
+
+	/* Counts the open passages of a maze (each one once). */
+	private static int countPassages(Maze maze) {
+		int passages = 0;
+		for (int y = 0; y < maze.getMazeHeight(); y++) {
+			for (int x = 0; x < maze.getMazeWidth(); x++) {
+				passages += (maze.isWallToRight(x, y) ? 0 : 1) + (maze.isWallBelow(x, y) ? 0 : 1);
+			}
+		}
+		return passages;
+	}
+
+	@Test(timeout = 30000)
+	public void testMazeGeneration() {
+		for (GenerationMode mode : GenerationMode.values()) {
+			Maze maze = new Maze(60, 80, 0, 12, mode);
+			Maze again = new Maze(60, 80, 0, 12, mode);
+			for (int y = 0; y < 60; y++) {
+				for (int x = 0; x < 80; x++) {
+					assertEquals(maze.isWallToRight(x, y), again.isWallToRight(x, y));
+					assertEquals(maze.isWallBelow(x, y), again.isWallBelow(x, y));
+				}
+			}
+			/* a perfect maze: connected, with no more passages than that
+			 * needs */
+			MazeGridGraph view = new MazeGridGraph(maze);
+			assertEquals(60 * 80, GraphSearch.breadthFirst(view, 0, -1).length);
+			assertEquals(60 * 80 - 1, countPassages(maze));
+		}
+
+		/* far more wall segments in a row than the old recursive 
+		 * generator had stack for */
+		Maze large = new Maze(1000, 1000, 0, 5);
+		assertEquals(1000 * 1000, GraphSearch.breadthFirst(new MazeGridGraph(large), 0, -1).length);
+		assertEquals(1000 * 1000 - 1, countPassages(large));
+	}
+
+	@Test(timeout = 120000)
+	public void testSparcityOnLargeMaze() {
+		/* 4651 x 4651 posts times a sparcity of 100 is more than 2^31 */
+		int passages = 4650 * 4650 - 1;
+		for (int sparcity : new int[] {20, 100}) {
+			int more = countPassages(new Maze(4650, 4650, sparcity, 9));
+			assertTrue(more > passages + 4650 * 4650 / 20);
+			passages = more;
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void testTiledMazeGeneration() throws Exception {
+		ForkJoinPool one = new ForkJoinPool(1);
+		ForkJoinPool three = new ForkJoinPool(3);
+		try {
+			/* tiles of 128 (70 is rounded up to a multiple of 64), 
+			 * including narrower ones along the right and bottom edges */
+			Maze maze = new Maze(150, 200, 0, 14, 70, three);
+			assertEquals(150 * 200, GraphSearch.breadthFirst(new MazeGridGraph(maze), 0, -1).length);
+			assertEquals(150 * 200 - 1, countPassages(maze));
+			assertTrue(sameMaze(maze, new Maze(150, 200, 0, 14, 128, one)));
+			assertFalse(sameMaze(maze, new Maze(150, 200, 0, 14, 64, one)));
+			for (int[] size : new int[][] {{1, 130}, {130, 1}, {65, 65}}) {
+				Maze thin = new Maze(size[0], size[1], 0, 3, 64, three);
+				assertEquals(size[0] * size[1], GraphSearch.breadthFirst(new MazeGridGraph(thin), 0, -1).length);
+				assertEquals(size[0] * size[1] - 1, countPassages(thin));
+			}
+			Maze sparse = new Maze(150, 200, 30, 14, 64, three);
+			assertTrue(sameMaze(sparse, new Maze(150, 200, 30, 14, 64, one)));
+			assertTrue(countPassages(sparse) > 150 * 200);
+		} finally {
+			one.shutdown();
+			three.shutdown();
+		}
+
+		/* mazes built at the same time no longer share random numbers */
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Maze>> futures = new ArrayList<Future<Maze>>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(new Callable<Maze>() {
+					public Maze call() {
+						return new Maze(80, 80, 10, 6);
+					}
+				}));
+			}
+			Maze expected = new Maze(80, 80, 10, 6);
+			for (Future<Maze> future : futures) {
+				assertTrue(sameMaze(expected, future.get()));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testMazeStorage() {
+		Maze maze = new Maze(1000, 1000, 30, 8);
+		/* 2 wall bits and 2 weight nibbles per juncture, plus rounding
+		 * each row of walls up to whole longs */
+		long expected = 1000L * 1000 * 10 / 8 + 2 * 1001 * 8 * 16;
+		assertTrue(maze.getStorageBytes() <= expected);
+		assertTrue(maze.getStorageBytes() < 1000L * 1000 * 2);
+		for (int y = 0; y < 1000; y++) {
+			assertTrue(maze.isWallToLeft(0, y));
+			assertTrue(maze.isWallToRight(999, y));
+		}
+		for (int x = 0; x < 1000; x++) {
+			assertTrue(maze.isWallAbove(x, 0));
+			assertTrue(maze.isWallBelow(x, 999));
+		}
+		for (int y = 0; y < 999; y++) {
+			for (int x = 0; x < 999; x++) {
+				int right = maze.getWeightToRight(x, y);
+				int below = maze.getWeightBelow(x, y);
+				assertTrue(right >= Maze.MIN_WEIGHT && right <= Maze.MAX_WEIGHT);
+				assertTrue(below >= Maze.MIN_WEIGHT && below <= Maze.MAX_WEIGHT);
+				assertEquals(right, maze.getWeightToLeft(x + 1, y));
+				assertEquals(below, maze.getWeightAbove(x, y + 1));
+				assertEquals(maze.isWallToRight(x, y), maze.isWallToLeft(x + 1, y));
+				assertEquals(maze.isWallBelow(x, y), maze.isWallAbove(x, y + 1));
+			}
+		}
+		/* past the edge there is no weight or wall to read */
+		int[][] outside = {{999, 0}, {0, 999}, {-1, 0}, {0, 1000}};
+		for (int[] juncture : outside) {
+			try {
+				maze.getWeightToRight(juncture[0], juncture[1]);
+				maze.getWeightBelow(juncture[0], juncture[1]);
+				fail("no weight past (" + juncture[0] + ", " + juncture[1] + ")");
+			} catch (ArrayIndexOutOfBoundsException e) {
+			}
+		}
+		try {
+			maze.isWallToRight(1000, 0);
+			fail("no wall past the edge");
+		} catch (ArrayIndexOutOfBoundsException e) {
+		}
+		try {
+			new Maze(50000, 50000, 0, 1);
+			fail("a maze with more than 2^31 posts should be refused");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	/* True if two mazes have the same walls and weights everywhere. */
+	private static boolean sameMaze(Maze a, Maze b) {
+		if (a.getMazeWidth() != b.getMazeWidth() || a.getMazeHeight() != b.getMazeHeight()) {
+			return false;
+		}
+		for (int y = 0; y < a.getMazeHeight(); y++) {
+			for (int x = 0; x < a.getMazeWidth(); x++) {
+				if (a.isWallAbove(x, y) != b.isWallAbove(x, y) || a.isWallBelow(x, y) != b.isWallBelow(x, y)
+						|| a.isWallToLeft(x, y) != b.isWallToLeft(x, y) 
+						|| a.isWallToRight(x, y) != b.isWallToRight(x, y)) {
+					return false;
+				}
+				if ((x + 1 < a.getMazeWidth() && a.getWeightToRight(x, y) != b.getWeightToRight(x, y))
+						|| (y + 1 < a.getMazeHeight() && a.getWeightBelow(x, y) != b.getWeightBelow(x, y))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Test
+	public void testMazeFile() throws IOException {
+		Maze maze = new Maze(70, 130, 20, 21);
+		Path file = Files.createTempFile("maze", ".bin");
+		try {
+			DataOutputStream out = new DataOutputStream(Files.newOutputStream(file));
+			maze.write(out);
+			out.close();
+			assertEquals(24 + maze.getStorageBytes(), Files.size(file));
+
+			Maze mapped = Maze.map(file);
+			assertTrue(sameMaze(maze, mapped));
+			assertEquals(maze.getStorageBytes(), mapped.getStorageBytes());
+			ShortestPathTree expected = ShortestPaths.dijkstra(new MazeGraph(maze), 0);
+			ShortestPathTree actual = ShortestPaths.dijkstra(new MazeGridGraph(mapped), 0);
+			for (int id = 0; id < 70 * 130; id++) {
+				assertEquals(expected.getCost(id), actual.getCost(id));
+			}
+
+			DataInputStream in = new DataInputStream(Files.newInputStream(file));
+			Maze read = Maze.read(in);
+			in.close();
+			assertTrue(sameMaze(maze, read));
+
+			RandomAccessFile truncate = new RandomAccessFile(file.toFile(), "rw");
+			truncate.setLength(Files.size(file) - 8);
+			truncate.close();
+			try {
+				Maze.map(file);
+				fail("a truncated file should be refused");
+			} catch (IOException e) {
+			}
+			Files.write(file, new byte[] {1, 2, 3, 4, 0, 0, 0, 1});
+			try {
+				Maze.map(file);
+				fail("a file that is not a maze should be refused");
+			} catch (IOException e) {
+			}
+
+			/* a maze of 50000 x 50000 junctures, in a sparse file: it
+			 * maps, but has too many junctures for int vertex ids.  Its
+			 * words are two rows of 782 walls for each of the 50001 rows
+			 * of posts, and two sections of 50000 x 49999 weights. */
+			long words = 2 * 50001L * 782 + 2 * ((50000L * 49999 + 15) >>> 4);
+			DataOutputStream header = new DataOutputStream(Files.newOutputStream(file));
+			header.writeInt(Maze.MAGIC);
+			header.writeInt(Maze.FORMAT_VERSION);
+			header.writeInt(50000);
+			header.writeInt(50000);
+			header.writeLong(words);
+			header.close();
+			RandomAccessFile extend = new RandomAccessFile(file.toFile(), "rw");
+			extend.setLength(24 + 8 * words);
+			extend.close();
+			Maze huge = Maze.map(file);
+			assertEquals(50000, huge.getMazeWidth());
+			try {
+				new MazeGridGraph(huge);
+				fail("a maze of more than 2^31 junctures should be refused");
+			} catch (IllegalArgumentException e) {
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testStreamingMazeGenerator() throws IOException {
+		Path file = Files.createTempFile("maze", ".bin");
+		Path again = Files.createTempFile("maze", ".bin");
+		try {
+			int[][] sizes = {{70, 130}, {1, 65}, {40, 1}, {1, 1}};
+			for (int[] size : sizes) {
+				int height = size[0];
+				int width = size[1];
+				StreamingMazeGenerator.generate(height, width, 0, 31, file);
+				Maze maze = Maze.map(file);
+				assertEquals(width, maze.getMazeWidth());
+				assertEquals(height, maze.getMazeHeight());
+				assertEquals(24 + maze.getStorageBytes(), Files.size(file));
+				/* a perfect maze, closed in by the outer wall */
+				assertEquals(width * height, GraphSearch.breadthFirst(new MazeGridGraph(maze), 0, -1).length);
+				assertEquals(width * height - 1, countPassages(maze));
+				for (int y = 0; y < height; y++) {
+					assertTrue(maze.isWallToLeft(0, y));
+					assertTrue(maze.isWallToRight(width - 1, y));
+				}
+				for (int x = 0; x < width; x++) {
+					assertTrue(maze.isWallAbove(x, 0));
+					assertTrue(maze.isWallBelow(x, height - 1));
+				}
+				for (int y = 0; y < height; y++) {
+					for (int x = 0; x < width; x++) {
+						if (x + 1 < width) {
+							int weight = maze.getWeightToRight(x, y);
+							assertTrue(weight >= Maze.MIN_WEIGHT && weight <= Maze.MAX_WEIGHT);
+							assertEquals(weight, maze.getWeightToLeft(x + 1, y));
+						}
+						if (y + 1 < height) {
+							int weight = maze.getWeightBelow(x, y);
+							assertTrue(weight >= Maze.MIN_WEIGHT && weight <= Maze.MAX_WEIGHT);
+							assertEquals(weight, maze.getWeightAbove(x, y + 1));
+						}
+					}
+				}
+			}
+
+			/* the same seed gives the same file */
+			StreamingMazeGenerator.generate(70, 130, 0, 31, again);
+			StreamingMazeGenerator.generate(70, 130, 0, 31, file);
+			assertTrue(Arrays.equals(Files.readAllBytes(file), Files.readAllBytes(again)));
+			StreamingMazeGenerator.generate(70, 130, 0, 32, again);
+			assertFalse(Arrays.equals(Files.readAllBytes(file), Files.readAllBytes(again)));
+
+			/* sparcity removes walls, and leaves the outer wall */
+			StreamingMazeGenerator.generate(70, 130, 40, 31, again);
+			Maze sparse = Maze.map(again);
+			assertTrue(countPassages(sparse) > 70 * 130 + 1000);
+			for (int y = 0; y < 70; y++) {
+				assertTrue(sparse.isWallToLeft(0, y));
+				assertTrue(sparse.isWallToRight(129, y));
+			}
+		} finally {
+			Files.delete(file);
+			Files.delete(again);
+		}
+	}
+
+	/* Writes a snapshot of the graph to the file and maps it back. */
+	private static MappedMazeGraph roundTrip(IndexedGraph<Juncture> graph, Path file) throws IOException {
+		DataOutputStream out = new DataOutputStream(Files.newOutputStream(file));
+		MappedMazeGraph.write(graph, out);
+		out.close();
+		return MappedMazeGraph.open(file);
+	}
+
+	@Test
+	public void testMappedGraphSnapshot() throws IOException {
+		MazeGraph graph = new MazeGraph(new Maze(45, 60, 15, 2));
+		/* the same junctures, added in another order */
+		WeightedGraph<Juncture> shuffled = new WeightedGraph<Juncture>();
+		for (int id = graph.getVertexCount() - 1; id >= 0; id--) {
+			shuffled.addVertex(graph.getVertex(id));
+		}
+		shuffled.addEdge(new Juncture(3, 4), new Juncture(4, 4), 7);
+		shuffled.addEdge(new Juncture(4, 4), new Juncture(3, 4), 7);
+		Path file = Files.createTempFile("graph", ".csr");
+		try {
+			for (IndexedGraph<Juncture> original : Arrays.<IndexedGraph<Juncture>>asList(graph, shuffled)) {
+				MappedMazeGraph mapped = roundTrip(original, file);
+				CompactGraph<Juncture> compact = new CompactGraph<Juncture>(original);
+				assertEquals(compact.getVertexCount(), mapped.getVertexCount());
+				assertEquals(compact.getEdgeCount(), mapped.getEdgeCount());
+				assertEquals(compact.getMaxWeight(), mapped.getMaxWeight());
+				for (int id = 0; id < compact.getVertexCount(); id++) {
+					assertEquals(compact.getVertex(id), mapped.getVertex(id));
+					assertEquals(id, mapped.getVertexId(compact.getVertex(id)));
+					assertEquals(compact.getDegree(id), mapped.getDegree(id));
+					for (int i = 0; i < compact.getDegree(id); i++) {
+						assertEquals(compact.getNeighbor(id, i), mapped.getNeighbor(id, i));
+						assertEquals(compact.getNeighborWeight(id, i), mapped.getNeighborWeight(id, i));
+					}
+				}
+				assertEquals(-1, mapped.getVertexId(new Juncture(60, 0)));
+				assertEquals(-1, mapped.getVertexId(new Juncture(0, 45)));
+				ShortestPathTree expected = ShortestPaths.dijkstra(original, 0);
+				ShortestPathTree actual = ShortestPaths.dijkstra(mapped, 0);
+				for (int id = 0; id < compact.getVertexCount(); id++) {
+					assertEquals(expected.getCost(id), actual.getCost(id));
+				}
+			}
+			Files.write(file, new byte[24]);
+			try {
+				MappedMazeGraph.open(file);
+				fail("a file that is not a snapshot should be refused");
+			} catch (IOException e) {
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testDuplicateEdgesAreIgnored() {
+		WeightedGraph<String> graph = new WeightedGraph<String>();
+		graph.addVertex("hub");
+		for (int i = 0; i < 20; i++) {
+			graph.addVertex("v" + i);
+			graph.addEdge("hub", "v" + i, i);
+		}
+		for (int i = 0; i < 20; i++) {
+			graph.addEdge("hub", "v" + i, 100);
+			assertEquals(Integer.valueOf(i), graph.getWeight("hub", "v" + i));
+			assertNull(graph.getWeight("v" + i, "hub"));
+		}
+	}
+
+	@Test
+	public void testDijkstraCostsAndPath() {
+		WeightedGraph<String> graph = buildExample();
+		RecordingObserver<String> observer = new RecordingObserver<String>();
+		graph.addObserver(observer);
+		graph.DoDijsktra("0", "4");
+		assertEquals(Arrays.asList("Dijkstra", "0=0", "1=4", "7=8", "6=9", "5=11", "2=12", 
+				"8=14", "3=19", "4=21"), observer.events);
+		assertEquals(Arrays.asList("0", "7", "6", "5", "4"), observer.path);
+	}
+
+	@Test
+	public void testBucketQueueMatchesBinaryHeap() {
+		WeightedGraph<Juncture> graph = buildGrid(60, 40);
+		assertEquals(9, graph.getMaxWeight());
+		for (int source : new int[] {0, 1234, 2399}) {
+			ShortestPathTree heap = ShortestPaths.dijkstra(graph, source, DijkstraMode.BINARY_HEAP);
+			ShortestPathTree buckets = ShortestPaths.dijkstra(graph, source, DijkstraMode.BUCKET_QUEUE);
+			for (int id = 0; id < graph.getVertexCount(); id++) {
+				assertEquals(heap.getCost(id), buckets.getCost(id));
+			}
+			assertEquals(graph.getVertexCount(), buckets.getSettledCount());
+		}
+		WeightedGraph<String> example = buildExample();
+		example.setDijkstraMode(DijkstraMode.BUCKET_QUEUE);
+		RecordingObserver<String> observer = new RecordingObserver<String>();
+		example.addObserver(observer);
+		example.DoDijsktra("0", "4");
+		assertEquals(Arrays.asList("0", "7", "6", "5", "4"), observer.path);
+	}
+
+	/* Adds up the weights along a path. */
+	private static <V> int pathCost(WeightedGraph<V> graph, List<V> path) {
+		int cost = 0;
+		for (int i = 1; i < path.size(); i++) {
+			cost += graph.getWeight(path.get(i - 1), path.get(i));
+		}
+		return cost;
+	}
+
+	@Test
+	public void testAStarFindsLowestCostPath() {
+		for (int sparcity : new int[] {0, 30, 100}) {
+			MazeGraph graph = new MazeGraph(new Maze(40, 50, sparcity, 17));
+			Juncture start = new Juncture(0, 0);
+			Juncture end = new Juncture(49, 39);
+			RecordingObserver<Juncture> dijkstra = new RecordingObserver<Juncture>();
+			RecordingObserver<Juncture> aStar = new RecordingObserver<Juncture>();
+			graph.addObserver(dijkstra);
+			graph.DoDijsktra(start, end);
+			/* dijkstra is still registered, and records the A* path too */
+			List<Juncture> lowest = new ArrayList<Juncture>(dijkstra.path);
+			graph.addObserver(aStar);
+			SearchResult<Juncture> result = graph.DoAStar(start, end);
+			int settled = result.getVisitedCount();
+			assertEquals(aStar.path, result.getPath());
+			assertEquals(pathCost(graph, aStar.path), result.getCost());
+			assertEquals(start, aStar.path.get(0));
+			assertEquals(end, aStar.path.get(aStar.path.size() - 1));
+			assertEquals(pathCost(graph, lowest), result.getCost());
+			assertEquals(graph.queryDijkstra(start, end).getCost(), result.getCost());
+			assertEquals(settled + 1, aStar.events.size());
+			assertTrue(settled <= graph.getVertexCount());
+		}
+	}
+
+	@Test
+	public void testFrozenSnapshotMatchesGraph() {
+		MazeGraph graph = new MazeGraph(new Maze(30, 40, 20, 5));
+		CompactGraph<Juncture> snapshot = graph.freeze();
+		assertEquals(graph.getVertexCount(), snapshot.getVertexCount());
+		assertEquals(graph.getMaxWeight(), snapshot.getMaxWeight());
+		int end = snapshot.getVertexId(new Juncture(39, 29));
+		assertEquals(graph.getVertexId(new Juncture(39, 29)), end);
+
+		ShortestPathTree objects = ShortestPaths.dijkstra(graph, 0);
+		ShortestPathTree compact = ShortestPaths.dijkstra(snapshot, 0);
+		for (int id = 0; id < graph.getVertexCount(); id++) {
+			assertEquals(objects.getCost(id), compact.getCost(id));
+		}
+		assertArrayEquals(GraphSearch.breadthFirst(graph, 0, end), GraphSearch.breadthFirst(snapshot, 0, end));
+		int[] path = GraphSearch.depthFirst(snapshot, 0, end);
+		assertArrayEquals(GraphSearch.depthFirst(graph, 0, end), path);
+		assertEquals(0, path[0]);
+		assertEquals(end, path[path.length - 1]);
+		for (int i = 1; i < path.length; i++) {
+			assertNotNull(graph.getWeight(graph.getVertex(path[i - 1]), graph.getVertex(path[i])));
+		}
+	}
+
+	@Test
+	public void testGridViewMatchesMazeGraph() {
+		Maze maze = new Maze(35, 45, 10, 9);
+		MazeGraph graph = new MazeGraph(maze);
+		MazeGridGraph view = new MazeGridGraph(maze);
+		assertEquals(graph.getVertexCount(), view.getVertexCount());
+		for (int id = 0; id < graph.getVertexCount(); id++) {
+			assertEquals(graph.getVertex(id), view.getVertex(id));
+			assertEquals(id, view.getVertexId(graph.getVertex(id)));
+		}
+		int end = view.getVertexId(new Juncture(44, 34));
+		ShortestPathTree objects = ShortestPaths.dijkstra(graph, 0);
+		ShortestPathTree implicit = ShortestPaths.dijkstra(view, 0);
+		for (int id = 0; id < graph.getVertexCount(); id++) {
+			assertEquals(objects.getCost(id), implicit.getCost(id));
+		}
+		assertArrayEquals(GraphSearch.breadthFirst(graph, 0, end), GraphSearch.breadthFirst(view, 0, end));
+		assertArrayEquals(GraphSearch.depthFirst(graph, 0, end), GraphSearch.depthFirst(view, 0, end));
+		ShortestPathTree aStar = ShortestPaths.aStar(view, 0, end, view.getManhattanHeuristic(end));
+		assertEquals(objects.getCost(end), aStar.getCost(end));
+	}
+
+	/* A single corridor 0 - 1 - 2 - ... - (length - 1), with edges
+	 * in both directions; searches along it are as deep as it is long.
+	 */
+	private static WeightedGraph<Integer> buildCorridor(int length) {
+		WeightedGraph<Integer> graph = new WeightedGraph<Integer>();
+		for (int i = 0; i < length; i++) {
+			graph.addVertex(i);
+		}
+		for (int i = 1; i < length; i++) {
+			graph.addEdge(i - 1, i, 1);
+			graph.addEdge(i, i - 1, 1);
+		}
+		return graph;
+	}
+
+	/* Counts visits and remembers the last vertex visited. */
+	static class CountingObserver<V> extends RecordingObserver<V> {
+		int visits;
+		V last;
+
+		@Override
+		public void notifyVisit(V vertex) {
+			visits++;
+			last = vertex;
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void testBFSOnLongCorridor() {
+		int length = 300000;
+		WeightedGraph<Integer> graph = buildCorridor(length);
+		CountingObserver<Integer> observer = new CountingObserver<Integer>();
+		graph.addObserver(observer);
+		graph.DoBFS(0, length - 1);
+		assertEquals(length, observer.visits);
+		assertEquals(Integer.valueOf(length - 1), observer.last);
+		assertEquals(Arrays.asList("BFS", "over"), observer.events);
+	}
+
+	@Test(timeout = 30000)
+	public void testSearchResultsWithoutObservers() {
+		WeightedGraph<String> example = buildExample();
+		SearchResult<String> dijkstra = example.DoDijsktra("0", "4");
+		assertEquals(Arrays.asList("0", "7", "6", "5", "4"), dijkstra.getPath());
+		assertEquals(21, dijkstra.getCost());
+		assertEquals(9, dijkstra.getVisitedCount());
+		SearchResult<String> bfs = example.DoBFS("0", "4");
+		assertEquals(5, bfs.getPath().size());
+		assertEquals(pathCost(example, bfs.getPath()), bfs.getCost());
+		SearchResult<String> dfs = example.DoDFS("0", "4");
+		assertEquals("4", dfs.getPath().get(dfs.getPath().size() - 1));
+		assertEquals(pathCost(example, dfs.getPath()), dfs.getCost());
+		assertTrue(dfs.getVisitedCount() >= dfs.getPath().size());
+		SearchResult<String> none = example.DoDijsktra("4", "0");
+		assertFalse(none.isPathFound());
+		assertEquals(ShortestPathTree.UNREACHABLE, none.getCost());
+		assertFalse(example.DoBFS("0", null).isPathFound());
+		assertEquals(1, example.DoBFS("0", null).getVisitedCount());
+
+		int length = 300000;
+		WeightedGraph<Integer> corridor = buildCorridor(length);
+		SearchResult<Integer> hops = corridor.DoBFS(0, length - 1);
+		assertEquals(length, hops.getPath().size());
+		assertEquals(length, hops.getVisitedCount());
+		assertEquals(length, corridor.DoDFS(0, length - 1).getVisitedCount());
+	}
+
+	@Test(timeout = 30000)
+	public void testConcurrentQueries() throws Exception {
+		final MazeGraph graph = new MazeGraph(new Maze(60, 60, 30, 3));
+		RecordingObserver<Juncture> observer = new RecordingObserver<Juncture>();
+		graph.addObserver(observer);
+		Random random = new Random(9);
+		final Juncture[][] queries = new Juncture[200][];
+		final int[] costs = new int[queries.length];
+		for (int i = 0; i < queries.length; i++) {
+			queries[i] = new Juncture[] {new Juncture(random.nextInt(60), random.nextInt(60)), 
+					new Juncture(random.nextInt(60), random.nextInt(60))};
+			if (i % 50 == 0) {
+				/* some queries from a juncture to itself */
+				queries[i][1] = queries[i][0];
+			}
+			costs[i] = graph.queryDijkstra(queries[i][0], queries[i][1]).getCost();
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<Boolean>> answers = new ArrayList<Future<Boolean>>();
+		for (int t = 0; t < 8; t++) {
+			answers.add(executor.submit(new Callable<Boolean>() {
+				public Boolean call() {
+					for (int i = 0; i < queries.length; i++) {
+						SearchResult<Juncture> dijkstra = graph.queryDijkstra(queries[i][0], queries[i][1]);
+						SearchResult<Juncture> aStar = graph.queryAStar(queries[i][0], queries[i][1]);
+						SearchResult<Juncture> bfs = graph.queryBFS(queries[i][0], queries[i][1]);
+						if (dijkstra.getCost() != costs[i] || aStar.getCost() != costs[i]
+								|| bfs.getPath().size() > dijkstra.getPath().size()
+								|| !bfs.getPath().get(0).equals(queries[i][0])) {
+							return false;
+						}
+					}
+					return true;
+				}
+			}));
+		}
+		for (Future<Boolean> answer : answers) {
+			assertTrue(answer.get());
+		}
+		executor.shutdown();
+		assertTrue(observer.events.isEmpty());
+
+		SearchResult<Juncture> result = graph.queryDijkstra(queries[0][0], queries[0][1]);
+		int[] ids = result.getPathIds();
+		assertEquals(result.getPath().size(), ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			assertEquals(result.getPath().get(i), graph.getVertex(ids[i]));
+		}
+		assertTrue(result.getElapsedNanos() > 0);
+	}
+
+	@Test(timeout = 30000)
+	public void testQueryEngineMatchesQueries() throws Exception {
+		Maze maze = new Maze(80, 80, 20, 4);
+		final MazeGraph graph = new MazeGraph(maze);
+		final QueryEngine<Juncture> frozen = new QueryEngine<Juncture>(graph.freeze());
+		final QueryEngine<Juncture> view = new QueryEngine<Juncture>(new MazeGridGraph(maze));
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<Boolean>> answers = new ArrayList<Future<Boolean>>();
+		for (int t = 0; t < 8; t++) {
+			final Random random = new Random(t);
+			answers.add(executor.submit(new Callable<Boolean>() {
+				public Boolean call() {
+					for (int i = 0; i < 100; i++) {
+						Juncture start = new Juncture(random.nextInt(80), random.nextInt(80));
+						Juncture end = i % 25 == 0 ? start : new Juncture(random.nextInt(80), random.nextInt(80));
+						SearchResult<Juncture> expected = graph.queryDijkstra(start, end);
+						SearchResult<Juncture> cheapest = frozen.shortestPath(start, end);
+						SearchResult<Juncture> shortest = view.fewestEdges(start, end);
+						if (cheapest.getCost() != expected.getCost()
+								|| view.shortestPath(start, end).getCost() != expected.getCost()
+								|| !cheapest.getPath().get(0).equals(start)
+								|| shortest.getPath().size() != graph.queryBFS(start, end).getPath().size()
+								|| shortest.getCost() != pathCost(graph, shortest.getPath())) {
+							return false;
+						}
+					}
+					return true;
+				}
+			}));
+		}
+		for (Future<Boolean> answer : answers) {
+			assertTrue(answer.get());
+		}
+		executor.shutdown();
+		assertFalse(frozen.shortestPath(new Juncture(0, 0), new Juncture(99, 99)).isPathFound());
+	}
+
+	@Test
+	public void testTreeCache() {
+		WeightedGraph<Juncture> graph = buildGrid(40, 40);
+		WeightedGraph<Juncture> uncached = buildGrid(40, 40);
+		long treeBytes = 8L * graph.getVertexCount();
+		graph.setTreeCacheLimit(3 * treeBytes);
+		ShortestPathTreeCache cache = graph.getTreeCache();
+		Juncture entrance = new Juncture(0, 0);
+		for (int i = 0; i < 40; i++) {
+			Juncture end = new Juncture(i, 39 - i);
+			SearchResult<Juncture> result = graph.queryDijkstra(entrance, end);
+			assertEquals(uncached.queryDijkstra(entrance, end).getCost(), result.getCost());
+			assertEquals(i == 0 ? graph.getVertexCount() : 0, result.getVisitedCount());
+		}
+		assertEquals(1, cache.getMissCount());
+		assertEquals(39, cache.getHitCount());
+
+		/* a fourth source evicts the least recently used */
+		graph.queryDijkstra(new Juncture(1, 1), entrance);
+		graph.queryDijkstra(new Juncture(2, 2), entrance);
+		graph.queryDijkstra(entrance, new Juncture(5, 5));
+		graph.queryDijkstra(new Juncture(3, 3), entrance);
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(3, cache.getTreeCount());
+		assertEquals(3 * treeBytes, cache.getBytes());
+		long hits = cache.getHitCount();
+		graph.queryDijkstra(entrance, new Juncture(6, 6));
+		assertEquals(hits + 1, cache.getHitCount());
+
+		/* DoDijsktra still reports every vertex, and fills the cache */
+		RecordingObserver<Juncture> observer = new RecordingObserver<Juncture>();
+		graph.addObserver(observer);
+		graph.DoDijsktra(new Juncture(9, 9), entrance);
+		assertEquals(graph.getVertexCount() + 1, observer.events.size());
+		assertEquals(0, graph.queryDijkstra(new Juncture(9, 9), new Juncture(30, 30)).getVisitedCount());
+
+		/* changing the graph empties the cache */
+		graph.addEdge(entrance, new Juncture(39, 39), 0);
+		assertEquals(0, graph.queryDijkstra(entrance, new Juncture(39, 39)).getCost());
+		assertEquals(1, cache.getInvalidationCount());
+		assertEquals(1, cache.getTreeCount());
+	}
+
+	@Test(timeout = 30000)
+	public void testLandmarks() throws IOException {
+		MazeGraph graph = new MazeGraph(new Maze(50, 50, 10, 6));
+		Landmarks landmarks = Landmarks.farthest(graph, graph, 4, 0);
+		assertEquals(4, landmarks.getCount());
+		Random random = new Random(6);
+		for (int q = 0; q < 20; q++) {
+			int target = random.nextInt(graph.getVertexCount());
+			/* the edges are symmetric, so distances to the target are 
+			 * distances from it */
+			ShortestPathTree truth = ShortestPaths.dijkstra(graph, target);
+			Heuristic bound = landmarks.heuristicTo(target);
+			for (int v = 0; v < graph.getVertexCount(); v++) {
+				if (truth.isReachable(v)) {
+					assertTrue(bound.estimate(v) <= truth.getCost(v));
+				}
+			}
+		}
+
+		int plainSettled = 0;
+		int altSettled = 0;
+		List<Juncture[]> queries = new ArrayList<Juncture[]>();
+		for (int q = 0; q < 30; q++) {
+			queries.add(new Juncture[] {new Juncture(random.nextInt(50), random.nextInt(50)), 
+					new Juncture(random.nextInt(50), random.nextInt(50))});
+		}
+		for (Juncture[] query : queries) {
+			plainSettled += graph.queryAStar(query[0], query[1]).getVisitedCount();
+		}
+		graph.setLandmarks(landmarks);
+		for (Juncture[] query : queries) {
+			SearchResult<Juncture> result = graph.queryAStar(query[0], query[1]);
+			assertEquals(graph.queryDijkstra(query[0], query[1]).getCost(), result.getCost());
+			altSettled += result.getVisitedCount();
+		}
+		assertTrue(altSettled < plainSettled);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		landmarks.write(new DataOutputStream(bytes));
+		Landmarks copy = Landmarks.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		assertEquals(landmarks.getCount(), copy.getCount());
+		Heuristic original = landmarks.heuristicTo(17);
+		Heuristic loaded = copy.heuristicTo(17);
+		for (int i = 0; i < landmarks.getCount(); i++) {
+			assertEquals(landmarks.getLandmark(i), copy.getLandmark(i));
+		}
+		for (int v = 0; v < graph.getVertexCount(); v++) {
+			assertEquals(original.estimate(v), loaded.estimate(v));
+		}
+		try {
+			new MazeGraph(new Maze(10, 10, 0, 1)).setLandmarks(copy);
+			fail("landmarks for another maze should be refused");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void testContractionHierarchy() {
+		MazeGraph maze = new MazeGraph(new Maze(40, 40, 10, 3));
+		ContractionHierarchy<Juncture> hierarchy = ContractionHierarchy.build(maze);
+		Random random = new Random(9);
+		for (int q = 0; q < 40; q++) {
+			Juncture start = new Juncture(random.nextInt(40), random.nextInt(40));
+			Juncture end = new Juncture(random.nextInt(40), random.nextInt(40));
+			SearchResult<Juncture> result = hierarchy.shortestPath(start, end);
+			assertEquals(maze.queryDijkstra(start, end).getCost(), result.getCost());
+			List<Juncture> path = result.getPath();
+			assertEquals(start, path.get(0));
+			assertEquals(end, path.get(path.size() - 1));
+			assertEquals(result.getCost(), pathCost(maze, path));
+		}
+
+		/* one-way edges, and a vertex that nothing reaches */
+		WeightedGraph<Integer> directed = new WeightedGraph<Integer>();
+		for (int i = 0; i < 300; i++) {
+			directed.addVertex(i);
+		}
+		for (int e = 0; e < 1200; e++) {
+			int from = random.nextInt(299);
+			int to = random.nextInt(299);
+			if (from != to) {
+				directed.addEdge(from, to, 1 + random.nextInt(20));
+			}
+		}
+		ContractionHierarchy<Integer> oneWay = ContractionHierarchy.build(directed);
+		for (int q = 0; q < 100; q++) {
+			int start = random.nextInt(300);
+			int end = q % 25 == 0 ? start : random.nextInt(300);
+			SearchResult<Integer> result = oneWay.shortestPath(start, end);
+			SearchResult<Integer> expected = directed.queryDijkstra(start, end);
+			assertEquals(expected.isPathFound(), result.isPathFound());
+			assertEquals(expected.getCost(), result.getCost());
+			if (result.isPathFound()) {
+				assertEquals(result.getCost(), pathCost(directed, result.getPath()));
+			}
+		}
+		assertFalse(oneWay.shortestPath(0, 299).isPathFound());
+	}
+
+	@Test(timeout = 60000)
+	public void testCorridorCompression() {
+		for (int sparcity : new int[] {0, 20, 100}) {
+			MazeGraph graph = new MazeGraph(new Maze(30, 30, sparcity, 4));
+			CorridorGraph<Juncture> corridors = graph.compressCorridors();
+			if (sparcity == 0) {
+				assertTrue(corridors.getVertexCount() < graph.getVertexCount() * 2 / 3);
+			}
+			Random random = new Random(sparcity);
+			for (int q = 0; q < 60; q++) {
+				Juncture start = new Juncture(random.nextInt(30), random.nextInt(30));
+				Juncture end = new Juncture(random.nextInt(30), random.nextInt(30));
+				if (start.equals(end)) {
+					continue;
+				}
+				SearchResult<Juncture> result = corridors.shortestPath(start, end);
+				assertEquals(graph.queryDijkstra(start, end).getCost(), result.getCost());
+				List<Juncture> path = result.getPath();
+				assertEquals(start, path.get(0));
+				assertEquals(end, path.get(path.size() - 1));
+				assertEquals(result.getCost(), pathCost(graph, path));
+			}
+
+			Juncture corner = new Juncture(0, 0);
+			assertEquals(Arrays.asList(corner), corridors.shortestPath(corner, corner).getPath());
+
+			/* searches on the compressed graph itself, expanded back */
+			int source = random.nextInt(corridors.getVertexCount());
+			ShortestPathTree compressed = ShortestPaths.dijkstra(corridors, source);
+			ShortestPathTree full = ShortestPaths.dijkstra(graph, corridors.getOriginalId(source));
+			for (int id = 0; id < corridors.getVertexCount(); id++) {
+				int originalId = corridors.getOriginalId(id);
+				assertEquals(id, corridors.getCompressedId(originalId));
+				assertEquals(full.getCost(originalId), compressed.getCost(id));
+				int[] expanded = corridors.expandPath(compressed.getPathTo(id));
+				assertEquals(corridors.getOriginalId(source), expanded[0]);
+				assertEquals(originalId, expanded[expanded.length - 1]);
+				List<Juncture> path = new ArrayList<Juncture>();
+				for (int v : expanded) {
+					path.add(graph.getVertex(v));
+				}
+				assertEquals(full.getCost(originalId), pathCost(graph, path));
+			}
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void testDFSOnLongCorridor() {
+		int length = 300000;
+		WeightedGraph<Integer> graph = buildCorridor(length);
+		CountingObserver<Integer> observer = new CountingObserver<Integer>();
+		graph.addObserver(observer);
+		graph.DoDFS(0, length - 1);
+		assertEquals(length, observer.visits);
+		assertEquals(Integer.valueOf(length - 1), observer.last);
+		assertEquals(Arrays.asList("DFS", "over"), observer.events);
+	}
+
+	/* Every search from a vertex to itself finds the path of just that
+	 * vertex, with cost 0. */
+	@Test
+	public void testSearchFromVertexToItself() {
+		Maze maze = new Maze(10, 10, 20, 3);
+		MazeGraph graph = new MazeGraph(maze);
+		RecordingObserver<Juncture> observer = new RecordingObserver<Juncture>();
+		graph.addObserver(observer);
+		QueryEngine<Juncture> engine = new QueryEngine<Juncture>(graph);
+		ContractionHierarchy<Juncture> hierarchy = ContractionHierarchy.build(graph);
+		CorridorGraph<Juncture> corridors = graph.compressCorridors();
+		for (Juncture s : new Juncture[] {new Juncture(0, 0), new Juncture(4, 7), new Juncture(9, 9)}) {
+			List<Juncture> expected = Arrays.asList(s);
+			List<SearchResult<Juncture>> results = Arrays.asList(graph.DoBFS(s, s), graph.queryBFS(s, s),
+					graph.DoDFS(s, s), graph.queryDFS(s, s), graph.DoDijsktra(s, s), graph.queryDijkstra(s, s),
+					graph.DoAStar(s, s), graph.queryAStar(s, s), engine.shortestPath(s, s), 
+					engine.fewestEdges(s, s), hierarchy.shortestPath(s, s), corridors.shortestPath(s, s));
+			for (SearchResult<Juncture> result : results) {
+				assertTrue(result.isPathFound());
+				assertEquals(expected, result.getPath());
+				assertEquals(0, result.getCost());
+			}
+			assertEquals(expected, graph.DoBidirectionalBFS(s, s));
+			assertEquals(expected, graph.DoBidirectionalDijkstra(s, s));
+
+			/* each Dijkstra-style search reports the path [s] as well */
+			for (int search = 0; search < 3; search++) {
+				observer.path = null;
+				if (search == 0) {
+					graph.DoDijsktra(s, s);
+				} else if (search == 1) {
+					graph.DoAStar(s, s);
+				} else {
+					graph.DoBidirectionalDijkstra(s, s);
+				}
+				assertEquals(expected, observer.path);
+			}
+		}
+	}
+
+	@Test
+	public void testBidirectionalSearches() {
+		WeightedGraph<String> example = buildExample();
+		assertEquals(Arrays.asList("0", "7", "6", "5", "4"), example.DoBidirectionalDijkstra("0", "4"));
+		assertEquals(5, example.DoBidirectionalBFS("0", "4").size());
+		assertTrue(example.DoBidirectionalDijkstra("4", "0").isEmpty());
+
+		for (int sparcity : new int[] {0, 40}) {
+			MazeGraph graph = new MazeGraph(new Maze(30, 40, sparcity, 3));
+			Juncture start = new Juncture(0, 0);
+			Juncture end = new Juncture(39, 29);
+			final List<Boolean> sides = new ArrayList<Boolean>();
+			RecordingObserver<Juncture> observer = new RecordingObserver<Juncture>() {
+				@Override
+				public void notifyBidirectionalVertexFinished(Juncture vertex, Integer cost, boolean fromStart) {
+					sides.add(fromStart);
+				}
+			};
+			graph.addObserver(observer);
+			List<Juncture> path = graph.DoBidirectionalDijkstra(start, end);
+			assertEquals(path, observer.path);
+			assertEquals(start, path.get(0));
+			assertEquals(end, path.get(path.size() - 1));
+			int endId = graph.getVertexId(end);
+			assertEquals(ShortestPaths.dijkstra(graph, 0).getCost(endId), pathCost(graph, path));
+			assertTrue(sides.contains(true) && sides.contains(false));
+			assertTrue(sides.size() < graph.getVertexCount());
+
+			List<Juncture> hops = graph.DoBidirectionalBFS(start, end);
+			WeightedGraph<Juncture> unitWeights = new WeightedGraph<Juncture>();
+			for (int id = 0; id < graph.getVertexCount(); id++) {
+				unitWeights.addVertex(graph.getVertex(id));
+			}
+			for (int id = 0; id < graph.getVertexCount(); id++) {
+				for (int i = 0; i < graph.getDegree(id); i++) {
+					unitWeights.addEdge(graph.getVertex(id), graph.getVertex(graph.getNeighbor(id, i)), 1);
+				}
+			}
+			assertEquals(end, hops.get(hops.size() - 1));
+			assertEquals(ShortestPaths.dijkstra(unitWeights, 0).getCost(endId), pathCost(unitWeights, hops));
+		}
+	}
+
+	@Test
+	public void testDeltaSteppingMatchesDijkstra() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		for (int sparcity : new int[] {0, 20, 60}) {
+			MazeGraph graph = new MazeGraph(new Maze(40, 60, sparcity, 11));
+			for (int source : new int[] {0, 1000, 2399}) {
+				ShortestPathTree expected = ShortestPaths.dijkstra(graph, source);
+				for (int delta : new int[] {1, DeltaStepping.chooseDelta(graph), 20}) {
+					ShortestPathTree actual = new DeltaStepping(pool, delta).run(graph, source);
+					assertEquals(expected.getSettledCount(), actual.getSettledCount());
+					for (int id = 0; id < graph.getVertexCount(); id++) {
+						assertEquals(expected.getCost(id), actual.getCost(id));
+						int predecessor = actual.getPredecessor(id);
+						if (sparcity == 0) {
+							/* only one path to each juncture */
+							assertEquals(expected.getPredecessor(id), predecessor);
+						} else if (predecessor >= 0) {
+							Integer weight = graph.getWeight(graph.getVertex(predecessor), graph.getVertex(id));
+							assertEquals(actual.getCost(id), actual.getCost(predecessor) + weight);
+						}
+					}
+				}
+			}
+		}
+		/* views with empty neighbor slots, and with long corridor edges */
+		for (int sparcity : new int[] {0, 10, 60}) {
+			Maze maze = new Maze(20, 30, sparcity, 1);
+			List<IndexedGraph<Juncture>> views = new ArrayList<IndexedGraph<Juncture>>();
+			views.add(new MazeGridGraph(maze));
+			views.add(new MazeGraph(maze).compressCorridors());
+			for (IndexedGraph<Juncture> view : views) {
+				for (int source : new int[] {0, view.getVertexCount() / 2}) {
+					ShortestPathTree expected = ShortestPaths.dijkstra(view, source);
+					for (int delta : new int[] {1, 4, 20}) {
+						ShortestPathTree actual = new DeltaStepping(pool, delta).run(view, source);
+						assertEquals(expected.getSettledCount(), actual.getSettledCount());
+						for (int id = 0; id < view.getVertexCount(); id++) {
+							assertEquals(expected.getCost(id), actual.getCost(id));
+						}
+					}
+				}
+			}
+		}
+		pool.shutdown();
+	}
+
+	private static boolean hasEdge(IndexedGraph<?> graph, int from, int to) {
+		for (int i = 0; i < graph.getDegree(from); i++) {
+			if (graph.getNeighbor(from, i) == to) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Test
+	public void testParallelBFSLevels() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		ParallelBreadthFirstSearch search = new ParallelBreadthFirstSearch(pool);
+		for (int sparcity : new int[] {0, 50, 100}) {
+			MazeGridGraph maze = new MazeGridGraph(new Maze(50, 70, sparcity, 2));
+			CompactGraph<Juncture> graph = new CompactGraph<Juncture>(maze);
+			int[] order = GraphSearch.breadthFirst(graph, 0, -1);
+			ShortestPathTree tree = search.run(graph, graph, 0);
+			assertEquals(order.length, tree.getSettledCount());
+			/* levels never decrease along the sequential visiting order */
+			for (int i = 1; i < order.length; i++) {
+				assertTrue(tree.getCost(order[i - 1]) <= tree.getCost(order[i]));
+			}
+			for (int id = 1; id < graph.getVertexCount(); id++) {
+				int parent = tree.getPredecessor(id);
+				if (tree.isReachable(id)) {
+					assertEquals(tree.getCost(parent) + 1, tree.getCost(id));
+					assertTrue(hasEdge(graph, parent, id));
+				} else {
+					assertEquals(-1, parent);
+				}
+			}
+		}
+		/* a dense random graph, where the frontier quickly covers most
+		 * of the graph and the bottom-up levels take over */
+		Random random = new Random(5);
+		WeightedGraph<Integer> dense = new WeightedGraph<Integer>();
+		for (int i = 0; i < 5000; i++) {
+			dense.addVertex(i);
+		}
+		for (int i = 0; i < 40000; i++) {
+			dense.addEdge(random.nextInt(5000), random.nextInt(5000), 1);
+		}
+		ShortestPathTree levels = search.run(dense, dense.freeze().reverse(), 0);
+		ShortestPathTree expected = ShortestPaths.dijkstra(dense, 0);
+		for (int id = 0; id < dense.getVertexCount(); id++) {
+			assertEquals(expected.getCost(id), levels.getCost(id));
+		}
+
+		WeightedGraph<String> example = buildExample();
+		ShortestPathTree tree = search.run(example, example.freeze().reverse(), 0);
+		assertEquals(2, tree.getCost(example.getVertexId("2")));
+		assertEquals(4, tree.getCost(example.getVertexId("4")));
+		assertFalse(search.run(example, example.freeze().reverse(), example.getVertexId("4")).isReachable(0));
+		pool.shutdown();
+	}
+
+	private static List<Thread> dispatchThreads() {
+		List<Thread> threads = new ArrayList<Thread>();
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().equals("graph-observer-dispatch") && thread.isAlive()) {
+				threads.add(thread);
+			}
+		}
+		return threads;
+	}
+
+	@Test(timeout = 30000)
+	public void testDispatchThreadLifecycle() throws InterruptedException {
+		List<Thread> before = dispatchThreads();
+		WeightedGraph<Juncture> graph = buildGrid(20, 20);
+		RecordingObserver<Juncture> observer = new RecordingObserver<Juncture>();
+		graph.addObserver(observer);
+		graph.setAsynchronousDispatch(Backpressure.BLOCK, 64);
+		graph.DoBFS(new Juncture(0, 0), new Juncture(19, 19));
+		graph.awaitObservers();
+		List<Thread> started = dispatchThreads();
+		started.removeAll(before);
+		assertEquals(1, started.size());
+		Thread thread = started.get(0);
+
+		/* idle, it parks until there is something to deliver */
+		while (thread.getState() != Thread.State.WAITING) {
+			Thread.sleep(1);
+		}
+		int seen = observer.events.size();
+		graph.DoBFS(new Juncture(19, 19), new Juncture(0, 0));
+		graph.awaitObservers();
+		assertEquals(2 * seen, observer.events.size());
+
+		/* a graph dropped without setSynchronousDispatch does not keep
+		 * its thread */
+		graph = null;
+		while (thread.isAlive()) {
+			System.gc();
+			thread.join(10);
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void testAsynchronousDispatch() throws InterruptedException {
+		WeightedGraph<Juncture> graph = buildGrid(30, 30);
+		RecordingObserver<Juncture> expected = new RecordingObserver<Juncture>();
+		graph.addObserver(expected);
+		graph.DoBFS(new Juncture(0, 0), new Juncture(29, 29));
+		graph.DoDijsktra(new Juncture(0, 0), new Juncture(29, 29));
+
+		/* blocking: the same events in the same order */
+		graph = buildGrid(30, 30);
+		RecordingObserver<Juncture> observer = new RecordingObserver<Juncture>();
+		graph.addObserver(observer);
+		graph.setAsynchronousDispatch(Backpressure.BLOCK, 16);
+		graph.DoBFS(new Juncture(0, 0), new Juncture(29, 29));
+		graph.DoDijsktra(new Juncture(0, 0), new Juncture(29, 29));
+		graph.awaitObservers();
+		assertEquals(expected.events, observer.events);
+		assertEquals(expected.path, observer.path);
+		assertEquals(0, graph.getLostEventCount());
+		graph.setSynchronousDispatch();
+
+		/* while the observer is stuck, dropping lets the search finish
+		 * and loses the visits that did not fit */
+		graph = buildGrid(30, 30);
+		GatedObserver<Juncture> gated = new GatedObserver<Juncture>();
+		graph.addObserver(gated);
+		graph.setAsynchronousDispatch(Backpressure.DROP, 16);
+		openGateOnceLost(graph, gated);
+		graph.DoBFS(new Juncture(0, 0), null);
+		graph.DoBFS(new Juncture(0, 0), new Juncture(40, 40));
+		graph.awaitObservers();
+		assertEquals("over", gated.events.get(gated.events.size() - 1));
+		assertTrue(graph.getLostEventCount() > 0);
+		assertEquals(1 + 900 + 4, gated.events.size() + graph.getLostEventCount());
+		graph.setSynchronousDispatch();
+
+		/* coalescing lets the search run ahead too.  The two frontiers
+		 * of a bidirectional search both visit the vertices where they
+		 * meet, and once the ring is full only the latest report of
+		 * each vertex is kept. */
+		List<RecordingObserver<Juncture>> runs = new ArrayList<RecordingObserver<Juncture>>();
+		List<List<Juncture>> paths = new ArrayList<List<Juncture>>();
+		List<Map<Juncture, String>> latest = new ArrayList<Map<Juncture, String>>();
+		List<Long> lost = new ArrayList<Long>();
+		for (Backpressure backpressure : Arrays.asList(null, Backpressure.COALESCE)) {
+			graph = buildGrid(30, 30);
+			final Map<Juncture, String> reports = new HashMap<Juncture, String>();
+			gated = new GatedObserver<Juncture>() {
+				public void notifyBidirectionalVisit(Juncture vertex, boolean fromStart) {
+					String event = "visit " + vertex + (fromStart ? " forward" : " backward");
+					events.add(event);
+					reports.put(vertex, event);
+				}
+			};
+			graph.addObserver(gated);
+			if (backpressure == null) {
+				gated.gate.countDown();
+			} else {
+				graph.setAsynchronousDispatch(backpressure, 16);
+				openGateOnceLost(graph, gated);
+			}
+			paths.add(graph.DoBidirectionalBFS(new Juncture(0, 0), new Juncture(29, 29)));
+			graph.awaitObservers();
+			runs.add(gated);
+			latest.add(reports);
+			lost.add(graph.getLostEventCount());
+			graph.setSynchronousDispatch();
+		}
+		assertEquals(0L, (long) lost.get(0));
+		assertTrue(lost.get(1) > 0);
+		assertEquals(runs.get(0).events.size(), runs.get(1).events.size() + lost.get(1));
+		assertEquals(latest.get(0), latest.get(1));
+		assertEquals(paths.get(0), paths.get(1));
+
+		/* an observer that throws does not stop the other events, and
+		 * its exception comes back from awaitObservers */
+		graph = buildGrid(30, 30);
+		final IllegalStateException thrown = new IllegalStateException("observer failed");
+		RecordingObserver<Juncture> failing = new RecordingObserver<Juncture>() {
+			public void notifyVisit(Juncture vertex) {
+				super.notifyVisit(vertex);
+				if (vertex.equals(new Juncture(3, 0))) {
+					throw thrown;
+				}
+			}
+		};
+		graph.addObserver(failing);
+		graph.setAsynchronousDispatch(Backpressure.BLOCK, 16);
+		graph.DoBFS(new Juncture(0, 0), new Juncture(29, 29));
+		try {
+			graph.awaitObservers();
+			fail("the observer's exception should be rethrown");
+		} catch (IllegalStateException e) {
+			assertSame(thrown, e);
+		}
+		assertEquals(expected.events.subList(0, 902), failing.events);
+		graph.awaitObservers();
+		graph.setSynchronousDispatch();
+	}
+}